@@ -0,0 +1,52 @@
+package com.example.hashtable.benchmarks;
+
+import com.example.hashtable.HashTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adversarial keys that all share one {@link String#hashCode()}. Seeded hashing and tree buckets
+ * keep chained tables fast; layouts hashing with <code>hashCode</code> degrade.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CollisionBenchmark {
+    static final private int SIZE = 4096;
+
+    @Param
+    public HashTable.Layout layout;
+
+    private String[] keys;
+    private HashTable table;
+    private int next;
+
+    @Setup
+    public void prepare() {
+        keys = Keys.colliding(SIZE);
+        table = new HashTable(layout);
+        for (String key : keys) {
+            table.put(key, key);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public HashTable fill() {
+        var filled = new HashTable(layout);
+        for (String key : keys) {
+            filled.put(key, key);
+        }
+        return filled;
+    }
+
+    @Benchmark
+    public String get() {
+        next = (next + 1) & (SIZE - 1);
+        return table.get(keys[next]);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.hashtable.benchmarks;
+
+import com.example.hashtable.HashTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups in a filled table with a given share of hits; misses are keys of the same shape that were never put.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GetBenchmark {
+    static final private int SIZE = 100_000;
+    static final private int LOOKUPS = 1 << 16;
+
+    @Param
+    public HashTable.Layout layout;
+
+    @Param({"0", "50", "90", "100"})
+    public int hitPercent;
+
+    @Param({"SHORT", "MIXED"})
+    public KeyLength keyLength;
+
+    private HashTable table;
+    private String[] lookups;
+    private int next;
+
+    @Setup
+    public void fill() {
+        String[] keys = Keys.random(SIZE, keyLength, 0);
+        String[] absent = Keys.random(SIZE, keyLength, 1);
+        table = new HashTable(layout);
+        table.putAll(keys, keys);
+
+        lookups = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            // hits are spread evenly among misses
+            boolean hit = i * hitPercent / 100 != (i + 1) * hitPercent / 100;
+            lookups[i] = hit ? keys[i % SIZE] : absent[i % SIZE];
+        }
+    }
+
+    @Benchmark
+    public String get() {
+        next = (next + 1) & (LOOKUPS - 1);
+        return table.get(lookups[next]);
+    }
+
+    @Benchmark
+    public boolean contains() {
+        next = (next + 1) & (LOOKUPS - 1);
+        return table.contains(lookups[next]);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.hashtable.benchmarks;
+
+/**
+ * Lengths of generated keys, see {@link Keys#random(int, KeyLength, int)}.
+ * Public because JMH generated code refers to parameter types.
+ */
+public enum KeyLength {
+    SHORT(4, 4),
+    MEDIUM(32, 32),
+    LONG(256, 256),
+    // uniformly spread between very short and long, like identifiers mixed with paths
+    MIXED(1, 128);
+
+    final int min;
+    final int max;
+
+    KeyLength(int min, int max) {
+        this.min = min;
+        this.max = max;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.hashtable.benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Key sets shared by the benchmarks. Everything is generated from fixed seeds, so runs are comparable.
+ */
+final class Keys {
+    static final private long SEED = 42;
+    static final private String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    private Keys() {}
+
+    /**
+     * Returns distinct random keys. Keys of different calls with the same salt are the same.
+     */
+    static String[] random(int count, KeyLength length, int salt) {
+        var random = new Random(SEED + salt);
+        var keys = new String[count];
+        for (int i = 0; i < count; i++) {
+            int size = length.min + random.nextInt(length.max - length.min + 1);
+            var key = new StringBuilder(size + 12);
+            // a unique prefix keeps the keys distinct however short they are
+            key.append(salt).append(':').append(i).append(':');
+            for (int j = 0; j < size; j++) {
+                key.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            keys[i] = key.toString();
+        }
+        return keys;
+    }
+
+    /**
+     * Returns distinct keys which all have the same {@link String#hashCode()}:
+     * concatenations of "Aa" and "BB", which hash equally.
+     */
+    static String[] colliding(int count) {
+        int parts = 32 - Integer.numberOfLeadingZeros(count);
+        var keys = new String[count];
+        for (int i = 0; i < count; i++) {
+            var key = new StringBuilder(parts * 2);
+            for (int bit = 0; bit < parts; bit++) {
+                key.append((i >> bit & 1) == 0 ? "Aa" : "BB");
+            }
+            keys[i] = key.toString();
+        }
+        return keys;
+    }
+
+    /**
+     * Returns indices into an array of the specified size following a Zipf distribution with exponent 1,
+     * so that a few keys get most of the lookups.
+     */
+    static int[] zipfIndices(int count, int size) {
+        var cumulative = new double[size];
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+
+        var random = new Random(SEED);
+        var indices = new int[count];
+        for (int i = 0; i < count; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            indices[i] = Math.min(index < 0 ? -index - 1 : index, size - 1);
+        }
+        return indices;
+    }
+}
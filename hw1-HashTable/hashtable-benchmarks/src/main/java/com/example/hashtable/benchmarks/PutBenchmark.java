@@ -0,0 +1,51 @@
+package com.example.hashtable.benchmarks;
+
+import com.example.hashtable.HashTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filling an empty table: measures growth, including the allocations of every resize.
+ * The score is the time of one put; the GC profiler reports bytes allocated per put.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PutBenchmark {
+    static final private int SIZE = 100_000;
+
+    @Param
+    public HashTable.Layout layout;
+
+    @Param({"SHORT", "MEDIUM", "LONG", "MIXED"})
+    public KeyLength keyLength;
+
+    private String[] keys;
+
+    @Setup
+    public void generateKeys() {
+        keys = Keys.random(SIZE, keyLength, 0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public HashTable fill() {
+        var table = new HashTable(layout);
+        for (String key : keys) {
+            table.put(key, key);
+        }
+        return table;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public HashTable fillAtOnce() {
+        var table = new HashTable(layout);
+        table.putAll(keys, keys);
+        return table;
+    }
+}
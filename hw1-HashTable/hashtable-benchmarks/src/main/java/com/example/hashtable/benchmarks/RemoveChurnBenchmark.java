@@ -0,0 +1,46 @@
+package com.example.hashtable.benchmarks;
+
+import com.example.hashtable.HashTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A table of steady size where every operation removes the oldest key and puts a new one,
+ * like a cache with expiry. Shows the cost of tombstones, backward shifts and unlinking.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RemoveChurnBenchmark {
+    static final private int LIVE = 10_000;
+    static final private int KEYS = 1 << 18;
+
+    @Param
+    public HashTable.Layout layout;
+
+    private HashTable table;
+    private String[] keys;
+    private int next;
+
+    @Setup
+    public void fill() {
+        keys = Keys.random(KEYS, KeyLength.MEDIUM, 0);
+        table = new HashTable(layout);
+        for (int i = 0; i < LIVE; i++) {
+            table.put(keys[i], keys[i]);
+        }
+        next = LIVE;
+    }
+
+    @Benchmark
+    public String replaceOldest() {
+        String removed = table.remove(keys[(next - LIVE) & (KEYS - 1)]);
+        table.put(keys[next & (KEYS - 1)], removed);
+        next++;
+        return removed;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.hashtable.benchmarks;
+
+import com.example.hashtable.HashTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tail latency of hits under a Zipf key distribution. Sample mode reports percentiles up to p99.99,
+ * which is where chained buckets and open addressing differ from cuckoo hashing.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SkewedGetBenchmark {
+    static final private int SIZE = 1_000_000;
+    static final private int LOOKUPS = 1 << 20;
+
+    @Param({"CHAINED", "OPEN_ADDRESSING", "SWISS", "CUCKOO"})
+    public HashTable.Layout layout;
+
+    private HashTable table;
+    private String[] lookups;
+    private int next;
+
+    @Setup
+    public void fill() {
+        String[] keys = Keys.random(SIZE, KeyLength.MIXED, 0);
+        table = new HashTable(layout);
+        table.putAll(keys, keys);
+
+        lookups = new String[LOOKUPS];
+        int[] indices = Keys.zipfIndices(LOOKUPS, SIZE);
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookups[i] = keys[indices[i]];
+        }
+    }
+
+    @Benchmark
+    public String get() {
+        next = (next + 1) & (LOOKUPS - 1);
+        return table.get(lookups[next]);
+    }
+}
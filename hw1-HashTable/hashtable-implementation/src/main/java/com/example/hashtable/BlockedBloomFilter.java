@@ -0,0 +1,100 @@
+package com.example.hashtable;
+
+/**
+ * Counting Bloom filter split into blocks of one cache line.
+ *
+ * A hash selects one block of {@link #COUNTERS_PER_BLOCK} four-bit counters and {@link #HASHES} counters in it,
+ * so every query reads a single cache line. Counters instead of bits make removal possible.
+ * A counter that reaches {@link #MAX_COUNT} sticks there, since its real count is lost;
+ * such counters only cost false positives until the filter is built anew.
+ */
+class BlockedBloomFilter {
+
+    static final private int BLOCK_LONGS = 8;
+    static final private int COUNTER_BITS = 4;
+    static final private int COUNTERS_PER_LONG = Long.SIZE / COUNTER_BITS;
+    static final private int COUNTERS_PER_BLOCK = BLOCK_LONGS * COUNTERS_PER_LONG;
+    static final private int POSITION_BITS = 7;
+    static final private int HASHES = 4;
+    static final private long MAX_COUNT = (1 << COUNTER_BITS) - 1;
+    // about ten counters per entry keep false positives under two percent
+    static final private int ENTRIES_PER_BLOCK = 12;
+
+    private final long[] counters;
+    private final int blockMask;
+
+    /**
+     * Creates an empty filter sized for the specified number of entries.
+     */
+    BlockedBloomFilter(int expectedEntries) {
+        int blocks = 1;
+        while (blocks * ENTRIES_PER_BLOCK < expectedEntries) {
+            blocks *= 2;
+        }
+        counters = new long[blocks * BLOCK_LONGS];
+        blockMask = blocks - 1;
+    }
+
+    /**
+     * Returns <code>false</code> if no entry with the specified hash was added,
+     * <code>true</code> if one probably was.
+     */
+    boolean mightContain(int hash) {
+        int block = block(hash);
+        for (int i = 0; i < HASHES; i++) {
+            int position = position(hash, i);
+            if ((counters[block + position / COUNTERS_PER_LONG] & mask(position)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void add(int hash) {
+        int block = block(hash);
+        for (int i = 0; i < HASHES; i++) {
+            int position = position(hash, i);
+            int index = block + position / COUNTERS_PER_LONG;
+            if (count(index, position) < MAX_COUNT) {
+                counters[index] += 1L << shift(position);
+            }
+        }
+    }
+
+    /**
+     * Undoes {@link #add(int)}, the hash must have been added before.
+     */
+    void remove(int hash) {
+        int block = block(hash);
+        for (int i = 0; i < HASHES; i++) {
+            int position = position(hash, i);
+            int index = block + position / COUNTERS_PER_LONG;
+            long count = count(index, position);
+            if (count > 0 && count < MAX_COUNT) {
+                counters[index] -= 1L << shift(position);
+            }
+        }
+    }
+
+    private long count(int index, int position) {
+        return (counters[index] & mask(position)) >>> shift(position);
+    }
+
+    // index of the first long of the block; uses the high bits of a multiplicative mix, positions use the low bits
+    private int block(int hash) {
+        long mixed = (hash & 0xFFFFFFFFL) * 0x9E3779B97F4A7C15L;
+        return ((int) (mixed >>> 32) & blockMask) * BLOCK_LONGS;
+    }
+
+    private static int position(int hash, int i) {
+        return (hash >>> (i * POSITION_BITS)) & (COUNTERS_PER_BLOCK - 1);
+    }
+
+    private static int shift(int position) {
+        return (position % COUNTERS_PER_LONG) * COUNTER_BITS;
+    }
+
+    private static long mask(int position) {
+        return MAX_COUNT << shift(position);
+    }
+}
@@ -0,0 +1,498 @@
+package com.example.hashtable;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/**
+ * Hash table with String as both key and value type that holds at most a fixed number of entries,
+ * meant to be used as a cache.
+ *
+ * Eviction follows W-TinyLFU. New entries enter a small LRU window. An entry leaving the window
+ * competes with the least recently used entry of the main segmented LRU, and the one used less often
+ * according to a count-min sketch of recent key frequencies is evicted. Scans through many keys used once
+ * therefore can not wash frequently used entries out of the cache.
+ *
+ * Every entry is a node both of a doubly linked bucket chain and of an access-order list,
+ * so any eviction takes O(1). Keys are hashed with a secret per-table seed, so neither bucket chains
+ * nor the sketch can be flooded with keys chosen to collide.
+ *
+ * Entries may be stored with a time to live, expired entries are dropped lazily on access.
+ * Like {@link HashTable} accepts <code>null</code> both as a key and as a value.
+ */
+public class BoundedHashTable {
+
+    static final private int WINDOW_PERCENT = 1;
+    static final private int PROTECTED_PERCENT = 80;
+    static final private long NEVER = Long.MAX_VALUE;
+    static final private int INIT_CAPACITY = 16;
+    static final private int MAXIMUM_CAPACITY = 1 << 30;
+
+    static final private int WINDOW = 0;
+    static final private int PROBATION = 1;
+    static final private int PROTECTED = 2;
+
+    static private class Node {
+        private final int hash;
+        private final String key;
+        private String value;
+        private long expiresAt;
+        private int queue;
+
+        private Node prevInBucket;
+        private Node nextInBucket;
+        private Node prev;
+        private Node next;
+
+        private Node(int hash, String key, String value, long expiresAt, Node nextInBucket) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.nextInBucket = nextInBucket;
+        }
+    }
+
+    /**
+     * Doubly linked list in access order, the head is the least recently used node.
+     */
+    static private class AccessQueue {
+        private Node head;
+        private Node tail;
+        private int size;
+
+        private void addLast(Node node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            size++;
+        }
+
+        private void unlink(Node node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            size--;
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters packed sixteen to a long, about eight counters per row for every entry
+     * the table holds. All counters are halved periodically, so the frequencies reflect recent history.
+     *
+     * The sketch starts small and is widened as the table fills up. A row is widened by repeating it,
+     * so each new counter starts from the count of the counter it is split from and stays an upper bound.
+     */
+    static private class FrequencySketch {
+        static final private int ROWS = 4;
+        static final private int MAX_COUNT = 15;
+        static final private long HALVING_MASK = 0x7777777777777777L;
+        static final private int[] SEEDS = {0x97CB3127, 0xB3C5EB9D, 0x6B5F0B2D, 0x2F9D5B83};
+
+        static final private int MAXIMUM_WIDTH = 1 << 30;
+
+        private final int maximumSize;
+        private long[][] counters;
+        private int mask;
+        // entries the current width is meant for
+        private int capacity;
+        private int sampleSize;
+        private int additions;
+
+        private FrequencySketch(int maximumSize) {
+            this.maximumSize = maximumSize;
+            capacity = Math.min(maximumSize, INIT_CAPACITY);
+            int width = width(capacity);
+            counters = new long[ROWS][width / 16];
+            mask = width - 1;
+            sampleSize = 10 * capacity;
+        }
+
+        private void ensureCapacity(int entries) {
+            if (entries <= capacity) {
+                return;
+            }
+            capacity = (int) Math.min(maximumSize, Math.max(entries, 2L * capacity));
+            sampleSize = (int) Math.min(Integer.MAX_VALUE, 10L * capacity);
+            int width = width(capacity);
+            if (width == mask + 1) {
+                return;
+            }
+            for (int row = 0; row < ROWS; row++) {
+                long[] old = counters[row];
+                long[] widened = new long[width / 16];
+                for (int from = 0; from < widened.length; from += old.length) {
+                    System.arraycopy(old, 0, widened, from, old.length);
+                }
+                counters[row] = widened;
+            }
+            mask = width - 1;
+        }
+
+        private static int width(int capacity) {
+            return (int) Math.min(MAXIMUM_WIDTH, Long.highestOneBit(Math.max(16, capacity - 1L)) * 8);
+        }
+
+        private void increment(int hash) {
+            for (int row = 0; row < ROWS; row++) {
+                int index = index(hash, row);
+                int shift = (index & 15) * 4;
+                long word = counters[row][index >>> 4];
+                if ((word >>> shift & MAX_COUNT) < MAX_COUNT) {
+                    counters[row][index >>> 4] = word + (1L << shift);
+                }
+            }
+            if (++additions == sampleSize) {
+                halve();
+            }
+        }
+
+        private int frequency(int hash) {
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < ROWS; row++) {
+                int index = index(hash, row);
+                frequency = Math.min(frequency, (int) (counters[row][index >>> 4] >>> ((index & 15) * 4)) & MAX_COUNT);
+            }
+            return frequency;
+        }
+
+        private void halve() {
+            for (var row : counters) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = (row[i] >>> 1) & HALVING_MASK;
+                }
+            }
+            additions /= 2;
+        }
+
+        private void clear() {
+            for (var row : counters) {
+                Arrays.fill(row, 0);
+            }
+            additions = 0;
+        }
+
+        private int index(int hash, int row) {
+            int h = hash * SEEDS[row];
+            return (h ^ (h >>> 16)) & mask;
+        }
+    }
+
+    private final int maximumSize;
+    private final int maximumWindow;
+    private final int maximumProtected;
+    private final LongSupplier ticker;
+    private final long seed = Hashing.newSeed();
+
+    private Node[] buckets = new Node[INIT_CAPACITY];
+    private final AccessQueue window = new AccessQueue();
+    private final AccessQueue probation = new AccessQueue();
+    private final AccessQueue protectedQueue = new AccessQueue();
+    private final FrequencySketch sketch;
+
+    private int entriesCount;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Constructs an empty BoundedHashTable holding at most the specified number of entries
+     * @throws IllegalArgumentException if maximumSize is not positive
+     */
+    public BoundedHashTable(int maximumSize) throws IllegalArgumentException {
+        this(maximumSize, System::nanoTime);
+    }
+
+    /**
+     * Constructs an empty BoundedHashTable holding at most the specified number of entries
+     * that measures time to live with the specified ticker
+     * @param ticker  source of current time in nanoseconds
+     * @throws IllegalArgumentException if maximumSize is not positive
+     * @throws NullPointerException if ticker is null
+     */
+    public BoundedHashTable(int maximumSize, LongSupplier ticker) throws IllegalArgumentException {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.maximumSize = maximumSize;
+        this.ticker = Objects.requireNonNull(ticker);
+        maximumWindow = Math.max(1, (int) ((long) maximumSize * WINDOW_PERCENT / 100));
+        maximumProtected = (int) ((long) (maximumSize - maximumWindow) * PROTECTED_PERCENT / 100);
+        sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * Checks if the specified key is present among stored keys and has not expired.
+     * Does not count as a use of the entry.
+     * @return     <code>true</code> if this table contains such key;
+     *             <code>false</code> otherwise.
+     */
+    public boolean contains(String key) {
+        Node node = find(hash(key), key);
+        return node != null && !isExpired(node, ticker.getAsLong());
+    }
+
+    /**
+     * Returns value mapped to the specified key or null if this table contains no mapping for the key.
+     * Counts as a hit or as a miss.
+     * @return  the value, mapped to the key if it is present;
+     * 			<code>null</code> otherwise
+     */
+    public String get(String key) {
+        int hash = hash(key);
+        sketch.increment(hash);
+
+        Node node = find(hash, key);
+        if (node != null && isExpired(node, ticker.getAsLong())) {
+            removeNode(node);
+            node = null;
+        }
+        if (node == null) {
+            missCount++;
+            return null;
+        }
+
+        hitCount++;
+        onAccess(node);
+        return node.value;
+    }
+
+    /**
+     * Stores value by key without expiration. Rewrites existing value.
+     * May evict another entry.
+     * @return  the previous value stored by this key,
+     * 			or <code>null</code> if there were no previous value
+     */
+    public String put(String key, String value) {
+        return put(key, value, NEVER);
+    }
+
+    /**
+     * Stores value by key for the specified time. Rewrites existing value.
+     * May evict another entry.
+     * @param timeToLiveNanos  time in nanoseconds after which the entry expires
+     * @return  the previous value stored by this key,
+     * 			or <code>null</code> if there were no previous value
+     * @throws IllegalArgumentException if timeToLiveNanos is not positive
+     */
+    public String put(String key, String value, long timeToLiveNanos) throws IllegalArgumentException {
+        if (timeToLiveNanos <= 0) {
+            throw new IllegalArgumentException();
+        }
+        long now = ticker.getAsLong();
+        long expiresAt = timeToLiveNanos == NEVER || now + timeToLiveNanos < now ? NEVER : now + timeToLiveNanos;
+        int hash = hash(key);
+        sketch.increment(hash);
+
+        Node node = find(hash, key);
+        if (node != null) {
+            String oldValue = isExpired(node, now) ? null : node.value;
+            node.value = value;
+            node.expiresAt = expiresAt;
+            onAccess(node);
+            return oldValue;
+        }
+
+        int index = bucketIndex(hash);
+        node = new Node(hash, key, value, expiresAt, buckets[index]);
+        if (node.nextInBucket != null) {
+            node.nextInBucket.prevInBucket = node;
+        }
+        buckets[index] = node;
+        node.queue = WINDOW;
+        window.addLast(node);
+        entriesCount++;
+        if (entriesCount > buckets.length && buckets.length < MAXIMUM_CAPACITY) {
+            rehash(buckets.length * 2);
+        }
+        sketch.ensureCapacity(entriesCount);
+
+        evict();
+        return null;
+    }
+
+    /**
+     * Removes value stored by specified key
+     * @return 	the value stored by this key,
+     * 			or <code>null</code> if there were no previous value
+     */
+    public String remove(String key) {
+        Node node = find(hash(key), key);
+        if (node == null) {
+            return null;
+        }
+        removeNode(node);
+        return isExpired(node, ticker.getAsLong()) ? null : node.value;
+    }
+
+    /**
+     * Removes all entries from the table. Statistics and key frequencies are reset too.
+     */
+    public void clear() {
+        Arrays.fill(buckets, null);
+        for (var queue : new AccessQueue[] {window, probation, protectedQueue}) {
+            queue.head = null;
+            queue.tail = null;
+            queue.size = 0;
+        }
+        sketch.clear();
+        entriesCount = 0;
+        hitCount = 0;
+        missCount = 0;
+        evictionCount = 0;
+    }
+
+    /**
+     * Returns the number of mappings stored. Expired entries that have not been touched since are counted too.
+     * @return	the number of mapping stored
+     */
+    public int size() {
+        return entriesCount;
+    }
+
+    /**
+     * Returns the number of <code>get</code> calls that found a value.
+     */
+    public long hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns the number of <code>get</code> calls that found no value.
+     */
+    public long missCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the number of entries evicted to keep the size bounded. Expired and removed entries are not counted.
+     */
+    public long evictionCount() {
+        return evictionCount;
+    }
+
+    private void onAccess(Node node) {
+        switch (node.queue) {
+            case WINDOW:
+                window.unlink(node);
+                window.addLast(node);
+                break;
+            case PROBATION:
+                // the second use promotes the entry, the least recently used protected one makes room
+                probation.unlink(node);
+                node.queue = PROTECTED;
+                protectedQueue.addLast(node);
+                if (protectedQueue.size > maximumProtected) {
+                    Node demoted = protectedQueue.head;
+                    protectedQueue.unlink(demoted);
+                    demoted.queue = PROBATION;
+                    probation.addLast(demoted);
+                }
+                break;
+            default:
+                protectedQueue.unlink(node);
+                protectedQueue.addLast(node);
+                break;
+        }
+    }
+
+    private void evict() {
+        while (window.size > maximumWindow) {
+            Node candidate = window.head;
+            window.unlink(candidate);
+            candidate.queue = PROBATION;
+            probation.addLast(candidate);
+
+            if (entriesCount <= maximumSize) {
+                continue;
+            }
+
+            Node victim = probation.head != candidate ? probation.head : protectedQueue.head;
+            if (victim != null && victim != candidate
+                    && sketch.frequency(candidate.hash) > sketch.frequency(victim.hash)) {
+                removeNode(victim);
+            } else {
+                removeNode(candidate);
+            }
+            evictionCount++;
+        }
+    }
+
+    private void rehash(int capacity) {
+        var old = buckets;
+        buckets = new Node[capacity];
+        for (Node head : old) {
+            for (Node p = head; p != null; ) {
+                Node next = p.nextInBucket;
+                int index = bucketIndex(p.hash);
+                p.prevInBucket = null;
+                p.nextInBucket = buckets[index];
+                if (p.nextInBucket != null) {
+                    p.nextInBucket.prevInBucket = p;
+                }
+                buckets[index] = p;
+                p = next;
+            }
+        }
+    }
+
+    private Node find(int hash, String key) {
+        for (Node p = buckets[bucketIndex(hash)]; p != null; p = p.nextInBucket) {
+            if (p.hash == hash && Objects.equals(p.key, key)) {
+                return p;
+            }
+        }
+        return null;
+    }
+
+    private void removeNode(Node node) {
+        if (node.prevInBucket == null) {
+            buckets[bucketIndex(node.hash)] = node.nextInBucket;
+        } else {
+            node.prevInBucket.nextInBucket = node.nextInBucket;
+        }
+        if (node.nextInBucket != null) {
+            node.nextInBucket.prevInBucket = node.prevInBucket;
+        }
+
+        queueOf(node).unlink(node);
+        entriesCount--;
+    }
+
+    private AccessQueue queueOf(Node node) {
+        switch (node.queue) {
+            case WINDOW:
+                return window;
+            case PROBATION:
+                return probation;
+            default:
+                return protectedQueue;
+        }
+    }
+
+    private boolean isExpired(Node node, long now) {
+        return node.expiresAt != NEVER && now - node.expiresAt >= 0;
+    }
+
+    private int bucketIndex(int hash) {
+        return hash & (buckets.length - 1);
+    }
+
+    private int hash(String key) {
+        return Hashing.seededHash(key, seed);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.hashtable;
+
+import java.util.function.BiConsumer;
+
+/**
+ * A bucket of {@link ChainedEngine}. Short buckets are lists, long ones are trees.
+ */
+abstract class Bucket {
+    public abstract boolean contains(String key);
+
+    public abstract String get(String key);
+
+    /**
+     * Same as {@link #contains(String)}, also records to the metrics how many keys the lookup compared the key with.
+     */
+    abstract boolean contains(String key, HashTableMetrics metrics);
+
+    /**
+     * Same as {@link #get(String)}, also records to the metrics how many keys the lookup compared the key with.
+     */
+    abstract String get(String key, HashTableMetrics metrics);
+
+    public abstract String put(String key, String value);
+
+    public abstract String remove(String key);
+
+    public abstract int size();
+
+    abstract void forEach(BiConsumer<String, String> action);
+
+    /**
+     * Returns the key of the mapping <code>moveFirstTo</code> would move. The bucket must not be empty.
+     */
+    abstract String firstKey();
+
+    /**
+     * Moves one mapping to the specified bucket, which must not contain its key. The bucket must not be empty.
+     */
+    abstract void moveFirstTo(Bucket target);
+}
@@ -0,0 +1,493 @@
+package com.example.hashtable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Separate chaining: every bucket is a {@link ListMap}.
+ *
+ * Keys are hashed with a secret per-table seed, see {@link Hashing}. A bucket that still gets longer
+ * than {@link #TREEIFY_THRESHOLD} is turned into a {@link TreeBucket} and back to a list once it shrinks
+ * to {@link #UNTREEIFY_THRESHOLD}, so even a flood of colliding keys costs O(log n) per operation.
+ *
+ * In incremental mode growing does not rehash everything at once. The old bucket array is kept
+ * next to the new one and every following operation moves at most {@link #MIGRATION_STEP} old buckets,
+ * so no single operation pays for the whole rehash. Buckets are created on the first entry put into them,
+ * a <code>null</code> bucket is empty, so starting a resize only allocates the array.
+ *
+ * Optionally every bucket array has a {@link BlockedBloomFilter} of the keys stored in it, sized for the number
+ * of entries the array holds before it grows. A lookup of an absent key then usually stops after one
+ * cache line of the filter instead of walking the bucket. The filter is built anew on every resize
+ * while the entries migrate, which also resets its saturated counters.
+ *
+ * With {@link HashTableMetrics#ENABLED} lookups and resizes are recorded to {@link #metrics}.
+ */
+class ChainedEngine implements Engine {
+
+    static final private int CAPACITY_MULTIPLIER = 2;
+    static final private int INVERSE_LOAD_FACTOR = 2;
+    static final private int INIT_CAPACITY = 11;
+    static final private int MIGRATION_STEP = 2;
+    static final private int TREEIFY_THRESHOLD = 8;
+    static final private int UNTREEIFY_THRESHOLD = 6;
+
+    private final boolean incremental;
+    private final boolean filtered;
+    private final long seed;
+    private Bucket[] buckets;
+    private int entriesCount;
+
+    // old buckets not migrated yet, null unless an incremental resize is in progress
+    private Bucket[] bucketsOld;
+    // buckets of bucketsOld with smaller indices are already empty
+    private int migratedCount;
+
+    // filters of keys in buckets and bucketsOld, null unless filtered
+    private BlockedBloomFilter filter;
+    private BlockedBloomFilter filterOld;
+
+    // null unless metrics are enabled
+    private final HashTableMetrics metrics = HashTableMetrics.ENABLED ? new HashTableMetrics(this) : null;
+
+    ChainedEngine() {
+        this(false);
+    }
+
+    ChainedEngine(boolean incremental) {
+        this(incremental, false);
+    }
+
+    ChainedEngine(boolean incremental, boolean filtered) {
+        this.incremental = incremental;
+        this.filtered = filtered;
+        seed = Hashing.newSeed();
+        clear();
+    }
+
+    /*
+     * An empty engine with a new seed and the bucket count of a snapshot, to be filled with putLoaded.
+     */
+    private ChainedEngine(int capacity) {
+        incremental = false;
+        filtered = false;
+        seed = Hashing.newSeed();
+        clear();
+        resize(capacity);
+        finishMigration();
+    }
+
+    /**
+     * Loads an engine written by {@link #writeSnapshot(Path)}.
+     */
+    static ChainedEngine loadSnapshot(Path path) throws IOException {
+        var engine = new ChainedEngine[1];
+        SnapshotFile.read(path,
+                capacity -> engine[0] = new ChainedEngine(capacity),
+                (key, value) -> engine[0].putLoaded(key, value));
+        return engine[0];
+    }
+
+    /**
+     * Writes the entries bucket by bucket. The seed is not written, loading hashes every key with a new one.
+     */
+    void writeSnapshot(Path path) throws IOException {
+        finishMigration();
+        SnapshotFile.write(path, buckets);
+    }
+
+    /**
+     * Writes a snapshot of the entries <code>entries</code> passes to its argument, which it must do twice,
+     * with as many buckets as an engine reserving room for <code>size</code> entries would have.
+     */
+    static void writeSnapshot(Path path, int size, Consumer<BiConsumer<String, String>> entries) throws IOException {
+        long needed = (long) size * INVERSE_LOAD_FACTOR;
+        int capacity = INIT_CAPACITY;
+        while (capacity <= needed) {
+            capacity *= CAPACITY_MULTIPLIER;
+        }
+        SnapshotFile.write(path, capacity, entries);
+    }
+
+    /**
+     * Returns metrics of this engine or <code>null</code> if metrics are disabled.
+     */
+    HashTableMetrics metrics() {
+        return metrics;
+    }
+
+    double loadFactor() {
+        return (double) entriesCount / buckets.length;
+    }
+
+    int longestBucket() {
+        int longest = 0;
+        for (var bucket : buckets) {
+            longest = Math.max(longest, sizeOf(bucket));
+        }
+        if (bucketsOld != null) {
+            for (int i = migratedCount; i < bucketsOld.length; i++) {
+                longest = Math.max(longest, sizeOf(bucketsOld[i]));
+            }
+        }
+        return longest;
+    }
+
+    private void putLoaded(String key, String value) {
+        int index = Math.floorMod(hash(key), buckets.length);
+        Bucket l = bucketAt(buckets, index);
+        int oldLSize = l.size();
+        l.put(key, value);
+
+        entriesCount += l.size() - oldLSize;
+        treeifyIfLong(buckets, index);
+    }
+
+    @Override
+    public boolean contains(String key) {
+        migrateStep();
+        Bucket bucket = bucketToLookIn(key);
+        if (bucket == null) {
+            return false;
+        }
+        return HashTableMetrics.ENABLED ? bucket.contains(key, metrics) : bucket.contains(key);
+    }
+
+    @Override
+    public String get(String key) {
+        migrateStep();
+        Bucket bucket = bucketToLookIn(key);
+        if (bucket == null) {
+            return null;
+        }
+        return HashTableMetrics.ENABLED ? bucket.get(key, metrics) : bucket.get(key);
+    }
+
+    @Override
+    public String put(String key, String value) {
+        migrateStep();
+        int hash = hash(key);
+        Bucket[] table = tableFor(hash);
+        String rewritten = putIntoBucket(table, Math.floorMod(hash, table.length), hash, key, value);
+
+        tryGrow();
+        return rewritten;
+    }
+
+    @Override
+    public String remove(String key) {
+        migrateStep();
+        int hash = hash(key);
+        Bucket[] table = tableFor(hash);
+        return removeFromBucket(table, Math.floorMod(hash, table.length), hash, key);
+    }
+
+    @Override
+    public void clear() {
+        buckets = new Bucket[INIT_CAPACITY];
+        entriesCount = 0;
+        bucketsOld = null;
+        migratedCount = 0;
+        filter = filtered ? new BlockedBloomFilter(INIT_CAPACITY / INVERSE_LOAD_FACTOR) : null;
+        filterOld = null;
+    }
+
+    @Override
+    public int size() {
+        return entriesCount;
+    }
+
+    @Override
+    public void reserve(int additional) {
+        long needed = ((long) entriesCount + additional) * INVERSE_LOAD_FACTOR;
+        int capacity = buckets.length;
+        while (capacity <= needed) {
+            capacity *= CAPACITY_MULTIPLIER;
+        }
+        finishMigration();
+        if (capacity != buckets.length) {
+            resize(capacity);
+            finishMigration();
+        }
+    }
+
+    @Override
+    public int slotCount() {
+        finishMigration();
+        return buckets.length;
+    }
+
+    @Override
+    public void forEachInSlots(int from, int to, BiConsumer<String, String> action) {
+        for (int i = from; i < to; i++) {
+            if (buckets[i] != null) {
+                buckets[i].forEach(action);
+            }
+        }
+    }
+
+    /*
+     * Unlike slotCount does not finish migration, old buckets are visited as they are.
+     * The arrays are read once, so an action that modifies the table, against the contract,
+     * leads to a ConcurrentModificationException from HashTable rather than to a failure here.
+     */
+    @Override
+    public void forEach(BiConsumer<String, String> action) {
+        Bucket[] old = bucketsOld;
+        Bucket[] current = buckets;
+        if (old != null) {
+            for (int i = migratedCount; i < old.length; i++) {
+                if (old[i] != null) {
+                    old[i].forEach(action);
+                }
+            }
+        }
+        for (var bucket : current) {
+            if (bucket != null) {
+                bucket.forEach(action);
+            }
+        }
+    }
+
+    /*
+     * Batch operations hash all keys first and then visit buckets in the order of their indices,
+     * without migration steps and growth checks between single operations.
+     */
+    @Override
+    public String[] getAll(String[] keys) {
+        finishMigration();
+        var result = new String[keys.length];
+        var hashes = new int[keys.length];
+        for (long packed : orderByBucket(keys, hashes)) {
+            int i = (int) packed;
+            Bucket bucket = buckets[(int) (packed >>> 32)];
+            if (bucket != null && mightContain(buckets, hashes[i])) {
+                result[i] = bucket.get(keys[i]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String[] putAll(String[] keys, String[] values) {
+        reserve(keys.length);
+        var result = new String[keys.length];
+        var hashes = new int[keys.length];
+        for (long packed : orderByBucket(keys, hashes)) {
+            int i = (int) packed;
+            result[i] = putIntoBucket(buckets, (int) (packed >>> 32), hashes[i], keys[i], values[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public String[] removeAll(String[] keys) {
+        finishMigration();
+        var result = new String[keys.length];
+        var hashes = new int[keys.length];
+        for (long packed : orderByBucket(keys, hashes)) {
+            int i = (int) packed;
+            result[i] = removeFromBucket(buckets, (int) (packed >>> 32), hashes[i], keys[i]);
+        }
+        return result;
+    }
+
+    // bucket index in the high half, key index in the low half, sorted; hashes of the keys are stored to hashes
+    private long[] orderByBucket(String[] keys, int[] hashes) {
+        var order = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            hashes[i] = hash(keys[i]);
+            order[i] = (long) Math.floorMod(hashes[i], buckets.length) << 32 | i;
+        }
+        Arrays.sort(order);
+        return order;
+    }
+
+    // returns the bucket array that currently holds keys with the specified hash
+    private Bucket[] tableFor(int hash) {
+        if (bucketsOld != null && Math.floorMod(hash, bucketsOld.length) >= migratedCount) {
+            return bucketsOld;
+        }
+        return buckets;
+    }
+
+    // returns null if the filter tells the key is absent or the bucket is empty;
+    // lookups into non-empty buckets record their comparisons themselves
+    private Bucket bucketToLookIn(String key) {
+        int hash = hash(key);
+        Bucket[] table = tableFor(hash);
+        if (!mightContain(table, hash)) {
+            return null;
+        }
+        Bucket bucket = table[Math.floorMod(hash, table.length)];
+        if (HashTableMetrics.ENABLED && bucket == null) {
+            metrics.recordLookup(0);
+        }
+        return bucket;
+    }
+
+    // answers for keys of the specified bucket array, which must be either buckets or bucketsOld
+    private boolean mightContain(Bucket[] table, int hash) {
+        return !filtered || filterFor(table).mightContain(hash);
+    }
+
+    private BlockedBloomFilter filterFor(Bucket[] table) {
+        return table == buckets ? filter : filterOld;
+    }
+
+    private String putIntoBucket(Bucket[] table, int index, int hash, String key, String value) {
+        Bucket l = bucketAt(table, index);
+        int oldLSize = l.size();
+        String rewritten = l.put(key, value);
+
+        entriesCount += l.size() - oldLSize;
+        if (filtered && l.size() != oldLSize) {
+            filterFor(table).add(hash);
+        }
+
+        treeifyIfLong(table, index);
+        return rewritten;
+    }
+
+    private static void treeifyIfLong(Bucket[] table, int index) {
+        Bucket l = table[index];
+        if (l instanceof ListMap && l.size() > TREEIFY_THRESHOLD) {
+            table[index] = moveEntries(l, new TreeBucket());
+        }
+    }
+
+    private String removeFromBucket(Bucket[] table, int index, int hash, String key) {
+        Bucket l = table[index];
+        if (l == null) {
+            return null;
+        }
+        int oldLSize = l.size();
+        String removed = l.remove(key);
+
+        entriesCount += l.size() - oldLSize;
+        if (filtered && l.size() != oldLSize) {
+            filterFor(table).remove(hash);
+        }
+
+        if (l instanceof TreeBucket && l.size() <= UNTREEIFY_THRESHOLD) {
+            table[index] = moveEntries(l, new ListMap());
+        }
+        return removed;
+    }
+
+    // creates the bucket if it is not there yet
+    private static Bucket bucketAt(Bucket[] table, int index) {
+        Bucket bucket = table[index];
+        if (bucket == null) {
+            bucket = new ListMap();
+            table[index] = bucket;
+        }
+        return bucket;
+    }
+
+    static int sizeOf(Bucket bucket) {
+        return bucket == null ? 0 : bucket.size();
+    }
+
+    private static Bucket moveEntries(Bucket from, Bucket to) {
+        while (from.size() > 0) {
+            from.moveFirstTo(to);
+        }
+        return to;
+    }
+
+    private void tryGrow() {
+        if (size() * INVERSE_LOAD_FACTOR < buckets.length) {
+            return;
+        }
+        if (HashTableMetrics.ENABLED) {
+            growRecorded();
+        } else {
+            grow();
+        }
+    }
+
+    private void grow() {
+        // growing faster than migration goes, finish the previous resize right away
+        finishMigration();
+
+        resize(buckets.length * CAPACITY_MULTIPLIER);
+        if (!incremental) {
+            migrate(bucketsOld.length);
+        }
+    }
+
+    private void growRecorded() {
+        var event = new ResizeEvent();
+        event.begin();
+        int oldCapacity = buckets.length;
+        long start = System.nanoTime();
+
+        grow();
+
+        metrics.recordResize(System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.oldCapacity = oldCapacity;
+            event.newCapacity = buckets.length;
+            event.entries = entriesCount;
+            event.incremental = incremental;
+            event.commit();
+        }
+    }
+
+    // starts moving entries to a new bucket array of the specified capacity
+    private void resize(int capacityNew) {
+        bucketsOld = buckets;
+        migratedCount = 0;
+        buckets = new Bucket[capacityNew];
+        if (filtered) {
+            filterOld = filter;
+            filter = new BlockedBloomFilter(capacityNew / INVERSE_LOAD_FACTOR);
+        }
+    }
+
+    private void finishMigration() {
+        if (bucketsOld != null) {
+            migrate(bucketsOld.length);
+        }
+    }
+
+    private void migrateStep() {
+        if (bucketsOld != null) {
+            migrate(MIGRATION_STEP);
+        }
+    }
+
+    private void migrate(int bucketsCount) {
+        int end = Math.min(bucketsOld.length, migratedCount + bucketsCount);
+        for (; migratedCount < end; migratedCount++) {
+            var l = bucketsOld[migratedCount];
+            if (l == null) {
+                continue;
+            }
+            bucketsOld[migratedCount] = null;
+            // list elements are relinked into the new buckets, not copied
+            while (l.size() > 0) {
+                int hash = hash(l.firstKey());
+                int index = Math.floorMod(hash, buckets.length);
+                l.moveFirstTo(bucketAt(buckets, index));
+                treeifyIfLong(buckets, index);
+                if (filtered) {
+                    filter.add(hash);
+                }
+            }
+        }
+
+        if (migratedCount == bucketsOld.length) {
+            bucketsOld = null;
+            migratedCount = 0;
+            filterOld = null;
+        }
+    }
+
+    private int hash(String key) {
+        return Hashing.seededHash(key, seed);
+    }
+}
@@ -0,0 +1,520 @@
+package com.example.hashtable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * Keeps keys and values as packed bytes in chunked arenas instead of String objects,
+ * and stores every distinct value once, however many keys map to it.
+ *
+ * The index is a linear probing table over parallel int arrays: a hash and references to the key and the value.
+ * Values are interned through a second linear probing table that counts the keys using each of them;
+ * a value is released when its count drops to zero.
+ *
+ * A reference is the chunk number in the high half and the offset inside the chunk in the low half,
+ * -1 stands for <code>null</code>. A stored string is laid out as
+ *   varint -- length in chars shifted left by one, the low bit set if the chars are wide
+ *   bytes  -- a byte per char if all chars fit into Latin-1, otherwise two big-endian bytes per char
+ *
+ * Strings are appended to the last chunk and never freed one by one: once released strings take more bytes
+ * than the live ones, all live strings are copied to fresh chunks.
+ *
+ * Keys are compared with the stored bytes as they are. Hashes are those of {@link String#hashCode()},
+ * so they can be computed from the stored bytes too.
+ */
+class CompactEngine implements Engine {
+
+    static final private int INIT_CAPACITY = 16;
+    // the tables grow when they are more than MAX_LOAD_NUMERATOR / MAX_LOAD_DENOMINATOR full
+    static final private int MAX_LOAD_NUMERATOR = 3;
+    static final private int MAX_LOAD_DENOMINATOR = 4;
+
+    static final private int CHUNK_BITS = 16;
+    static final private int CHUNK_SIZE = 1 << CHUNK_BITS;
+    static final private int OFFSET_MASK = CHUNK_SIZE - 1;
+    // chunk 0xFFFF would make -1 a valid reference
+    static final private int MAX_CHUNKS = (1 << (Integer.SIZE - CHUNK_BITS)) - 1;
+    static final private int NULL_REF = -1;
+
+    // entries; a hash of 0 marks an empty slot
+    private int[] hashes;
+    private int[] keyRefs;
+    private int[] valueRefs;
+    private int mask;
+    private int entriesCount;
+
+    // interned values
+    private int[] internHashes;
+    private int[] internRefs;
+    private int[] internCounts;
+    private int internMask;
+    private int internCount;
+
+    private byte[][] chunks;
+    private int chunkCount;
+    // new strings are appended to this chunk starting at bumpOffset
+    private int bumpChunk;
+    private int bumpOffset;
+    private long liveBytes;
+    private long garbageBytes;
+
+    CompactEngine() {
+        clear();
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return findSlot(key, hash(key)) >= 0;
+    }
+
+    @Override
+    public String get(String key) {
+        int slot = findSlot(key, hash(key));
+        return slot < 0 ? null : read(valueRefs[slot]);
+    }
+
+    @Override
+    public String put(String key, String value) {
+        int hash = hash(key);
+        int slot = findSlot(key, hash);
+        // interned before the old value is released, so putting the same value again keeps its bytes
+        int valueRef = value == null ? NULL_REF : intern(value);
+
+        if (slot >= 0) {
+            int oldRef = valueRefs[slot];
+            String oldValue = read(oldRef);
+            valueRefs[slot] = valueRef;
+            release(oldRef);
+            compactIfWasteful();
+            return oldValue;
+        }
+
+        if ((entriesCount + 1) * MAX_LOAD_DENOMINATOR > (mask + 1) * MAX_LOAD_NUMERATOR) {
+            resize((mask + 1) * 2);
+        }
+        insert(hash, key == null ? NULL_REF : store(key), valueRef);
+        entriesCount++;
+        return null;
+    }
+
+    @Override
+    public String remove(String key) {
+        int slot = findSlot(key, hash(key));
+        if (slot < 0) {
+            return null;
+        }
+        int keyRef = keyRefs[slot];
+        int valueRef = valueRefs[slot];
+        String oldValue = read(valueRef);
+
+        // backward shift deletion for linear probing
+        int hole = slot;
+        for (int i = (slot + 1) & mask; hashes[i] != 0; i = (i + 1) & mask) {
+            int home = hashes[i] & mask;
+            // the entry may move to the hole unless its home lies cyclically in (hole, i]
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                hashes[hole] = hashes[i];
+                keyRefs[hole] = keyRefs[i];
+                valueRefs[hole] = valueRefs[i];
+                hole = i;
+            }
+        }
+        hashes[hole] = 0;
+        entriesCount--;
+
+        discard(keyRef);
+        release(valueRef);
+        compactIfWasteful();
+        return oldValue;
+    }
+
+    @Override
+    public void clear() {
+        hashes = new int[INIT_CAPACITY];
+        keyRefs = new int[INIT_CAPACITY];
+        valueRefs = new int[INIT_CAPACITY];
+        mask = INIT_CAPACITY - 1;
+        entriesCount = 0;
+
+        internHashes = new int[INIT_CAPACITY];
+        internRefs = new int[INIT_CAPACITY];
+        internCounts = new int[INIT_CAPACITY];
+        internMask = INIT_CAPACITY - 1;
+        internCount = 0;
+
+        resetArena();
+    }
+
+    @Override
+    public int size() {
+        return entriesCount;
+    }
+
+    @Override
+    public void reserve(int additional) {
+        int capacity = mask + 1;
+        while (((long) entriesCount + additional) * MAX_LOAD_DENOMINATOR > (long) capacity * MAX_LOAD_NUMERATOR) {
+            capacity *= 2;
+        }
+        if (capacity != mask + 1) {
+            resize(capacity);
+        }
+    }
+
+    @Override
+    public int slotCount() {
+        return mask + 1;
+    }
+
+    @Override
+    public void forEachInSlots(int from, int to, BiConsumer<String, String> action) {
+        for (int i = from; i < to; i++) {
+            if (hashes[i] != 0) {
+                action.accept(read(keyRefs[i]), read(valueRefs[i]));
+            }
+        }
+    }
+
+    private int findSlot(String key, int hash) {
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            int h = hashes[i];
+            if (h == 0) {
+                return -1;
+            }
+            if (h == hash && storedEquals(keyRefs[i], key)) {
+                return i;
+            }
+        }
+    }
+
+    // the key must be absent and there must be a free slot
+    private void insert(int hash, int keyRef, int valueRef) {
+        int i = hash & mask;
+        while (hashes[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        hashes[i] = hash;
+        keyRefs[i] = keyRef;
+        valueRefs[i] = valueRef;
+    }
+
+    private void resize(int capacity) {
+        int[] hashesOld = hashes;
+        int[] keyRefsOld = keyRefs;
+        int[] valueRefsOld = valueRefs;
+
+        hashes = new int[capacity];
+        keyRefs = new int[capacity];
+        valueRefs = new int[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < hashesOld.length; i++) {
+            if (hashesOld[i] != 0) {
+                // strings stay where they are, only the index is rebuilt
+                insert(hashesOld[i], keyRefsOld[i], valueRefsOld[i]);
+            }
+        }
+    }
+
+    // returns the reference of the stored copy of the value and counts one more use of it
+    private int intern(String value) {
+        int hash = hash(value);
+        int i = hash & internMask;
+        for (; internHashes[i] != 0; i = (i + 1) & internMask) {
+            if (internHashes[i] == hash && storedEquals(internRefs[i], value)) {
+                internCounts[i]++;
+                return internRefs[i];
+            }
+        }
+
+        if ((internCount + 1) * MAX_LOAD_DENOMINATOR > (internMask + 1) * MAX_LOAD_NUMERATOR) {
+            resizeIntern((internMask + 1) * 2);
+            i = hash & internMask;
+            while (internHashes[i] != 0) {
+                i = (i + 1) & internMask;
+            }
+        }
+        internHashes[i] = hash;
+        internRefs[i] = store(value);
+        internCounts[i] = 1;
+        internCount++;
+        return internRefs[i];
+    }
+
+    // counts one use of the interned value less, dropping the value with the last use
+    private void release(int valueRef) {
+        if (valueRef == NULL_REF) {
+            return;
+        }
+        int slot = internSlot(chunks, valueRef);
+        if (--internCounts[slot] > 0) {
+            return;
+        }
+
+        int hole = slot;
+        for (int i = (slot + 1) & internMask; internHashes[i] != 0; i = (i + 1) & internMask) {
+            int home = internHashes[i] & internMask;
+            if (((i - home) & internMask) >= ((i - hole) & internMask)) {
+                internHashes[hole] = internHashes[i];
+                internRefs[hole] = internRefs[i];
+                internCounts[hole] = internCounts[i];
+                hole = i;
+            }
+        }
+        internHashes[hole] = 0;
+        internCount--;
+        discard(valueRef);
+    }
+
+    // slot of the interned value stored at the reference in the specified chunks
+    private int internSlot(byte[][] chunks, int valueRef) {
+        int i = mix(storedHash(chunks, valueRef)) & internMask;
+        while (internRefs[i] != valueRef || internHashes[i] == 0) {
+            i = (i + 1) & internMask;
+        }
+        return i;
+    }
+
+    private void resizeIntern(int capacity) {
+        int[] hashesOld = internHashes;
+        int[] refsOld = internRefs;
+        int[] countsOld = internCounts;
+
+        internHashes = new int[capacity];
+        internRefs = new int[capacity];
+        internCounts = new int[capacity];
+        internMask = capacity - 1;
+        for (int i = 0; i < hashesOld.length; i++) {
+            if (hashesOld[i] != 0) {
+                int j = hashesOld[i] & internMask;
+                while (internHashes[j] != 0) {
+                    j = (j + 1) & internMask;
+                }
+                internHashes[j] = hashesOld[i];
+                internRefs[j] = refsOld[i];
+                internCounts[j] = countsOld[i];
+            }
+        }
+    }
+
+    private void resetArena() {
+        chunks = new byte[4][];
+        chunkCount = 0;
+        bumpChunk = -1;
+        bumpOffset = CHUNK_SIZE;
+        liveBytes = 0;
+        garbageBytes = 0;
+    }
+
+    private void compactIfWasteful() {
+        if (garbageBytes > liveBytes && garbageBytes >= CHUNK_SIZE) {
+            compact();
+        }
+    }
+
+    // copies the live strings to fresh chunks and updates the references
+    private void compact() {
+        byte[][] chunksOld = chunks;
+        resetArena();
+
+        var movedValues = new int[internRefs.length];
+        for (int i = 0; i < internHashes.length; i++) {
+            if (internHashes[i] != 0) {
+                movedValues[i] = copy(chunksOld, internRefs[i]);
+            }
+        }
+        for (int i = 0; i < hashes.length; i++) {
+            if (hashes[i] == 0) {
+                continue;
+            }
+            if (keyRefs[i] != NULL_REF) {
+                keyRefs[i] = copy(chunksOld, keyRefs[i]);
+            }
+            if (valueRefs[i] != NULL_REF) {
+                valueRefs[i] = movedValues[internSlot(chunksOld, valueRefs[i])];
+            }
+        }
+        for (int i = 0; i < internHashes.length; i++) {
+            if (internHashes[i] != 0) {
+                internRefs[i] = movedValues[i];
+            }
+        }
+    }
+
+    private int copy(byte[][] from, int ref) {
+        int size = storedSize(from, ref);
+        int copyRef = allocate(size);
+        System.arraycopy(from[ref >>> CHUNK_BITS], ref & OFFSET_MASK,
+                chunks[copyRef >>> CHUNK_BITS], copyRef & OFFSET_MASK, size);
+        return copyRef;
+    }
+
+    private int store(String s) {
+        int length = s.length();
+        boolean wide = false;
+        for (int i = 0; i < length && !wide; i++) {
+            wide = s.charAt(i) > 0xFF;
+        }
+        int header = length << 1 | (wide ? 1 : 0);
+        int size = varintSize(header) + (wide ? 2 * length : length);
+
+        int ref = allocate(size);
+        byte[] chunk = chunks[ref >>> CHUNK_BITS];
+        int p = writeVarint(chunk, ref & OFFSET_MASK, header);
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (wide) {
+                chunk[p++] = (byte) (c >>> 8);
+            }
+            chunk[p++] = (byte) c;
+        }
+        return ref;
+    }
+
+    // marks the bytes of a string that is no longer referenced as garbage
+    private void discard(int ref) {
+        if (ref != NULL_REF) {
+            int size = storedSize(chunks, ref);
+            liveBytes -= size;
+            garbageBytes += size;
+        }
+    }
+
+    // strings longer than a chunk get a chunk of their own
+    private int allocate(int size) {
+        liveBytes += size;
+        if (size > CHUNK_SIZE) {
+            return newChunk(size) << CHUNK_BITS;
+        }
+        if (bumpOffset + size > CHUNK_SIZE) {
+            if (bumpChunk >= 0) {
+                garbageBytes += CHUNK_SIZE - bumpOffset;
+            }
+            bumpChunk = newChunk(CHUNK_SIZE);
+            bumpOffset = 0;
+        }
+        int ref = bumpChunk << CHUNK_BITS | bumpOffset;
+        bumpOffset += size;
+        return ref;
+    }
+
+    private int newChunk(int size) {
+        if (chunkCount == MAX_CHUNKS) {
+            throw new IllegalStateException("The arena is full");
+        }
+        if (chunkCount == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+        }
+        chunks[chunkCount] = new byte[size];
+        return chunkCount++;
+    }
+
+    private String read(int ref) {
+        if (ref == NULL_REF) {
+            return null;
+        }
+        byte[] chunk = chunks[ref >>> CHUNK_BITS];
+        int offset = ref & OFFSET_MASK;
+        int header = readVarint(chunk, offset);
+        int p = offset + varintSize(header);
+        int length = header >>> 1;
+        if ((header & 1) == 0) {
+            return new String(chunk, p, length, StandardCharsets.ISO_8859_1);
+        }
+
+        var chars = new char[length];
+        for (int i = 0; i < length; i++, p += 2) {
+            chars[i] = (char) ((chunk[p] & 0xFF) << 8 | chunk[p + 1] & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    private boolean storedEquals(int ref, String s) {
+        if (ref == NULL_REF || s == null) {
+            return ref == NULL_REF && s == null;
+        }
+        byte[] chunk = chunks[ref >>> CHUNK_BITS];
+        int offset = ref & OFFSET_MASK;
+        int header = readVarint(chunk, offset);
+        int p = offset + varintSize(header);
+        int length = header >>> 1;
+        if (length != s.length()) {
+            return false;
+        }
+
+        if ((header & 1) == 0) {
+            for (int i = 0; i < length; i++) {
+                if ((chunk[p + i] & 0xFF) != s.charAt(i)) {
+                    return false;
+                }
+            }
+        } else {
+            for (int i = 0; i < length; i++, p += 2) {
+                if (((chunk[p] & 0xFF) << 8 | chunk[p + 1] & 0xFF) != s.charAt(i)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // String.hashCode of the stored string
+    private static int storedHash(byte[][] chunks, int ref) {
+        byte[] chunk = chunks[ref >>> CHUNK_BITS];
+        int offset = ref & OFFSET_MASK;
+        int header = readVarint(chunk, offset);
+        int p = offset + varintSize(header);
+        int length = header >>> 1;
+
+        int h = 0;
+        if ((header & 1) == 0) {
+            for (int i = 0; i < length; i++) {
+                h = 31 * h + (chunk[p + i] & 0xFF);
+            }
+        } else {
+            for (int i = 0; i < length; i++, p += 2) {
+                h = 31 * h + ((chunk[p] & 0xFF) << 8 | chunk[p + 1] & 0xFF);
+            }
+        }
+        return h;
+    }
+
+    private static int storedSize(byte[][] chunks, int ref) {
+        int header = readVarint(chunks[ref >>> CHUNK_BITS], ref & OFFSET_MASK);
+        int length = header >>> 1;
+        return varintSize(header) + ((header & 1) == 0 ? length : 2 * length);
+    }
+
+    // seven bits per byte starting from the lowest, the high bit set on all bytes but the last
+    private static int writeVarint(byte[] chunk, int p, int value) {
+        while ((value & ~0x7F) != 0) {
+            chunk[p++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        chunk[p++] = (byte) value;
+        return p;
+    }
+
+    private static int readVarint(byte[] chunk, int p) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = chunk[p++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static int varintSize(int value) {
+        return (Integer.SIZE - Integer.numberOfLeadingZeros(value | 1) + 6) / 7;
+    }
+
+    private static int hash(String s) {
+        return mix(s == null ? 0 : s.hashCode());
+    }
+
+    private static int mix(int h) {
+        return (h ^ (h >>> 16)) | Integer.MIN_VALUE;
+    }
+}
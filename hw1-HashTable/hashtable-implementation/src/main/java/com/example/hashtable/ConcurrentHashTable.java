@@ -0,0 +1,235 @@
+package com.example.hashtable;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe hash table with String as both key and value type.
+ *
+ * Writers lock one of {@link #STRIPES_COUNT} stripes, so writers of different stripes do not block each other.
+ * Readers take no locks at all: chains are built from nodes with volatile links and values,
+ * and a resize publishes a freshly copied bucket array, leaving the old chains intact for readers still walking them.
+ *
+ * Like {@link HashTable} accepts <code>null</code> both as a key and as a value.
+ */
+public class ConcurrentHashTable {
+
+    static final private int STRIPES_COUNT = 64;
+    static final private int CAPACITY_MULTIPLIER = 2;
+    static final private int INVERSE_LOAD_FACTOR = 2;
+    // power of two and not less than STRIPES_COUNT, so every bucket belongs to exactly one stripe
+    static final private int INIT_CAPACITY = 128;
+
+    static private class Node {
+        private final int hash;
+        private final String key;
+        private volatile String value;
+        private volatile Node next;
+
+        private Node(int hash, String key, String value, Node next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /**
+     * A lock guarding every bucket with index equal to the stripe index modulo STRIPES_COUNT
+     * together with the count of entries stored in those buckets.
+     */
+    static private class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile int entriesCount;
+    }
+
+    private final Stripe[] stripes = new Stripe[STRIPES_COUNT];
+    private volatile AtomicReferenceArray<Node> buckets;
+
+    /**
+     * Constructs an empty ConcurrentHashTable
+     */
+    public ConcurrentHashTable() {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        buckets = new AtomicReferenceArray<>(INIT_CAPACITY);
+    }
+
+    /**
+     * Checks if the specified key is present among stored keys.
+     * @return     <code>true</code> if this table contains such key;
+     *             <code>false</code> otherwise.
+     */
+    public boolean contains(String key) {
+        return find(key) != null;
+    }
+
+    /**
+     * Returns value mapped to the specified key or null if this table contains no mapping for the key.
+     * @return  the value, mapped to the key if it is present;
+     * 			<code>null</code> otherwise
+     */
+    public String get(String key) {
+        Node node = find(key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Stores value by key. Rewrites existing value.
+     * @return  the previous value stored by this key,
+     * 			or <code>null</code> if there were no previous value
+     */
+    public String put(String key, String value) {
+        int hash = hash(key);
+        Stripe stripe = stripeFor(hash);
+        boolean needGrow;
+
+        stripe.lock.lock();
+        try {
+            var table = buckets;
+            int index = hash & (table.length() - 1);
+            Node head = table.get(index);
+            for (Node p = head; p != null; p = p.next) {
+                if (p.hash == hash && Objects.equals(p.key, key)) {
+                    String oldValue = p.value;
+                    p.value = value;
+                    return oldValue;
+                }
+            }
+
+            table.set(index, new Node(hash, key, value, head));
+            int count = stripe.entriesCount + 1;
+            stripe.entriesCount = count;
+            needGrow = count * INVERSE_LOAD_FACTOR >= table.length() / STRIPES_COUNT;
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        if (needGrow) {
+            tryGrow();
+        }
+        return null;
+    }
+
+    /**
+     * Removes value stored by specified key
+     * @return 	the value stored by this key,
+     * 			or <code>null</code> if there were no previous value
+     */
+    public String remove(String key) {
+        int hash = hash(key);
+        Stripe stripe = stripeFor(hash);
+
+        stripe.lock.lock();
+        try {
+            var table = buckets;
+            int index = hash & (table.length() - 1);
+            Node prev = null;
+            for (Node p = table.get(index); p != null; prev = p, p = p.next) {
+                if (p.hash == hash && Objects.equals(p.key, key)) {
+                    // readers standing on p still see the rest of the chain through p.next
+                    if (prev == null) {
+                        table.set(index, p.next);
+                    } else {
+                        prev.next = p.next;
+                    }
+                    stripe.entriesCount = stripe.entriesCount - 1;
+                    return p.value;
+                }
+            }
+            return null;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all entries from the table
+     */
+    public void clear() {
+        lockAll();
+        try {
+            buckets = new AtomicReferenceArray<>(INIT_CAPACITY);
+            for (var stripe : stripes) {
+                stripe.entriesCount = 0;
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Returns the number of mappings stored.
+     * Is exact only if no modifications run at the same time.
+     * @return	the number of mapping stored
+     */
+    public int size() {
+        int size = 0;
+        for (var stripe : stripes) {
+            size += stripe.entriesCount;
+        }
+        return size;
+    }
+
+    private Node find(String key) {
+        int hash = hash(key);
+        var table = buckets;
+        for (Node p = table.get(hash & (table.length() - 1)); p != null; p = p.next) {
+            if (p.hash == hash && Objects.equals(p.key, key)) {
+                return p;
+            }
+        }
+        return null;
+    }
+
+    private void tryGrow() {
+        if (size() * INVERSE_LOAD_FACTOR < buckets.length()) {
+            return;
+        }
+
+        lockAll();
+        try {
+            var table = buckets;
+            if (size() * INVERSE_LOAD_FACTOR < table.length()) {
+                // other stripes are sparse or somebody has already grown the table
+                return;
+            }
+
+            int capacityNew = table.length() * CAPACITY_MULTIPLIER;
+            var bucketsNew = new AtomicReferenceArray<Node>(capacityNew);
+            for (int i = 0; i < table.length(); i++) {
+                // nodes are copied, not relinked, so readers of the old array never jump between chains
+                for (Node p = table.get(i); p != null; p = p.next) {
+                    int index = p.hash & (capacityNew - 1);
+                    bucketsNew.set(index, new Node(p.hash, p.key, p.value, bucketsNew.get(index)));
+                }
+            }
+            buckets = bucketsNew;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    private void lockAll() {
+        for (var stripe : stripes) {
+            stripe.lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (var stripe : stripes) {
+            stripe.lock.unlock();
+        }
+    }
+
+    private Stripe stripeFor(int hash) {
+        return stripes[hash & (STRIPES_COUNT - 1)];
+    }
+
+    private static int hash(String key) {
+        int h = key == null ? 0 : key.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
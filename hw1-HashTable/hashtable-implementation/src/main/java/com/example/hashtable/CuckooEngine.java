@@ -0,0 +1,371 @@
+package com.example.hashtable;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * Bucketized cuckoo hashing with a stash.
+ *
+ * Every key has two candidate buckets chosen by two independently seeded hashes, and every bucket
+ * has {@link #BUCKET_SIZE} slots. A key lives in one of its two buckets or in the small stash,
+ * so a lookup never inspects more than two buckets plus the stash, however the keys are distributed.
+ * Inserting into two full buckets evicts a random entry to its other bucket, which may evict another one
+ * and so on; an entry left homeless after {@link #MAX_KICKS} evictions goes to the stash,
+ * and a full stash makes the table grow, or reseed its hashes if it is less than half full.
+ * Rebuilding is given up after {@link #MAX_REBUILDS} attempts in a row: the stash then grows instead,
+ * so keys that keep colliding slow lookups down to a scan of the stash rather than hang the insertion.
+ *
+ * Both hashes of an entry are packed into one long kept next to the entry, so evictions never rehash keys.
+ * The second hash always has its highest bit set, which lets zero mark an empty slot.
+ */
+class CuckooEngine implements Engine {
+
+    static final private int BUCKET_SIZE = 4;
+    static final private int INIT_BUCKETS = 4;
+    static final private int STASH_SIZE = 4;
+    static final private int MAX_KICKS = 256;
+    static final private int MAX_REBUILDS = 4;
+    // the table grows when it is more than MAX_LOAD_NUMERATOR / MAX_LOAD_DENOMINATOR full
+    static final private int MAX_LOAD_NUMERATOR = 9;
+    static final private int MAX_LOAD_DENOMINATOR = 10;
+
+    /**
+     * Hash function the two bucket hashes are computed with, see {@link Hashing#seededHash}.
+     */
+    interface SeededHash {
+        int hash(String key, long seed);
+    }
+
+    private final SeededHash seededHash;
+    private long seed1 = Hashing.newSeed();
+    private long seed2 = Hashing.newSeed();
+    // incremented whenever the seeds change, so that stale packed hashes can be recognised
+    private int seedGeneration;
+
+    private long[] hashes;
+    private String[] keys;
+    private String[] values;
+    private int bucketMask;
+    private int entriesCount;
+
+    private long[] stashHashes = new long[STASH_SIZE];
+    private String[] stashKeys = new String[STASH_SIZE];
+    private String[] stashValues = new String[STASH_SIZE];
+    private int stashCount;
+    // rebuilds forced by the insertion in progress, including the nested ones
+    private int failedRebuilds;
+
+    // state of the xorshift generator choosing victims of evictions
+    private int random = 0x2545F491;
+
+    CuckooEngine() {
+        this(Hashing::seededHash);
+    }
+
+    /**
+     * An empty engine hashing keys with the specified function, meant for tests that need colliding keys.
+     */
+    CuckooEngine(SeededHash seededHash) {
+        this.seededHash = seededHash;
+        clear();
+    }
+
+    @Override
+    public boolean contains(String key) {
+        long hash = hash(key);
+        return find(key, hash) >= 0 || findInStash(key, hash) >= 0;
+    }
+
+    @Override
+    public String get(String key) {
+        long hash = hash(key);
+        int index = find(key, hash);
+        if (index >= 0) {
+            return values[index];
+        }
+        index = findInStash(key, hash);
+        return index >= 0 ? stashValues[index] : null;
+    }
+
+    @Override
+    public String put(String key, String value) {
+        long hash = hash(key);
+        int index = find(key, hash);
+        if (index >= 0) {
+            String oldValue = values[index];
+            values[index] = value;
+            return oldValue;
+        }
+        index = findInStash(key, hash);
+        if (index >= 0) {
+            String oldValue = stashValues[index];
+            stashValues[index] = value;
+            return oldValue;
+        }
+
+        if ((entriesCount + 1) * MAX_LOAD_DENOMINATOR > hashes.length * MAX_LOAD_NUMERATOR) {
+            rebuild(hashes.length * 2 / BUCKET_SIZE, false);
+        }
+        insert(hash, key, value);
+        failedRebuilds = 0;
+        entriesCount++;
+        return null;
+    }
+
+    @Override
+    public String remove(String key) {
+        long hash = hash(key);
+        int index = find(key, hash);
+        if (index >= 0) {
+            String oldValue = values[index];
+            hashes[index] = 0;
+            keys[index] = null;
+            values[index] = null;
+            entriesCount--;
+            unstash();
+            return oldValue;
+        }
+
+        index = findInStash(key, hash);
+        if (index < 0) {
+            return null;
+        }
+        String oldValue = stashValues[index];
+        stashCount--;
+        stashHashes[index] = stashHashes[stashCount];
+        stashKeys[index] = stashKeys[stashCount];
+        stashValues[index] = stashValues[stashCount];
+        stashHashes[stashCount] = 0;
+        stashKeys[stashCount] = null;
+        stashValues[stashCount] = null;
+        entriesCount--;
+        return oldValue;
+    }
+
+    @Override
+    public void clear() {
+        allocate(INIT_BUCKETS);
+        stashHashes = new long[STASH_SIZE];
+        stashKeys = new String[STASH_SIZE];
+        stashValues = new String[STASH_SIZE];
+        stashCount = 0;
+        entriesCount = 0;
+        failedRebuilds = 0;
+    }
+
+    @Override
+    public int size() {
+        return entriesCount;
+    }
+
+    @Override
+    public void reserve(int additional) {
+        int capacity = hashes.length;
+        while (((long) entriesCount + additional) * MAX_LOAD_DENOMINATOR > (long) capacity * MAX_LOAD_NUMERATOR) {
+            capacity *= 2;
+        }
+        if (capacity != hashes.length) {
+            rebuild(capacity / BUCKET_SIZE, false);
+            failedRebuilds = 0;
+        }
+    }
+
+    // the stash is the last slot
+    @Override
+    public int slotCount() {
+        return hashes.length + 1;
+    }
+
+    @Override
+    public void forEachInSlots(int from, int to, BiConsumer<String, String> action) {
+        for (int i = from; i < Math.min(to, hashes.length); i++) {
+            if (hashes[i] != 0) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+        if (to > hashes.length) {
+            for (int i = 0; i < stashCount; i++) {
+                action.accept(stashKeys[i], stashValues[i]);
+            }
+        }
+    }
+
+    // returns the slot holding the key or -1, only the two candidate buckets are looked at
+    private int find(String key, long hash) {
+        int index = firstBucket(hash) * BUCKET_SIZE;
+        for (int i = 0; i < BUCKET_SIZE; i++, index++) {
+            if (hashes[index] == hash && Objects.equals(keys[index], key)) {
+                return index;
+            }
+        }
+        index = secondBucket(hash) * BUCKET_SIZE;
+        for (int i = 0; i < BUCKET_SIZE; i++, index++) {
+            if (hashes[index] == hash && Objects.equals(keys[index], key)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private int findInStash(String key, long hash) {
+        for (int i = 0; i < stashCount; i++) {
+            if (stashHashes[i] == hash && Objects.equals(stashKeys[i], key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // the key must be absent; rebuilds the table if neither the buckets nor the stash can take the entry,
+    // or grows the stash once too many rebuilds in a row did not help
+    private void insert(long hash, String key, String value) {
+        int generation = seedGeneration;
+        while (true) {
+            if (generation != seedGeneration) {
+                hash = hash(key);
+                generation = seedGeneration;
+            }
+            if (place(hash, key, value)) {
+                return;
+            }
+
+            int bucket = firstBucket(hash);
+            for (int kick = 0; kick < MAX_KICKS; kick++) {
+                int victim = bucket * BUCKET_SIZE + nextRandom() % BUCKET_SIZE;
+                long h = hashes[victim];
+                String k = keys[victim];
+                String v = values[victim];
+                hashes[victim] = hash;
+                keys[victim] = key;
+                values[victim] = value;
+                hash = h;
+                key = k;
+                value = v;
+
+                bucket = firstBucket(hash) == bucket ? secondBucket(hash) : firstBucket(hash);
+                if (placeInBucket(bucket, hash, key, value)) {
+                    return;
+                }
+            }
+
+            if (stashCount < STASH_SIZE || failedRebuilds >= MAX_REBUILDS) {
+                stash(hash, key, value);
+                return;
+            }
+
+            // a half empty table that still overflows means the hashes are unlucky, not that it is too small
+            boolean reseed = entriesCount * 2 < hashes.length;
+            failedRebuilds++;
+            rebuild(reseed ? hashes.length / BUCKET_SIZE : hashes.length * 2 / BUCKET_SIZE, reseed);
+        }
+    }
+
+    private void stash(long hash, String key, String value) {
+        if (stashCount == stashHashes.length) {
+            stashHashes = Arrays.copyOf(stashHashes, stashCount * 2);
+            stashKeys = Arrays.copyOf(stashKeys, stashCount * 2);
+            stashValues = Arrays.copyOf(stashValues, stashCount * 2);
+        }
+        stashHashes[stashCount] = hash;
+        stashKeys[stashCount] = key;
+        stashValues[stashCount] = value;
+        stashCount++;
+    }
+
+    private boolean place(long hash, String key, String value) {
+        return placeInBucket(firstBucket(hash), hash, key, value)
+                || placeInBucket(secondBucket(hash), hash, key, value);
+    }
+
+    private boolean placeInBucket(int bucket, long hash, String key, String value) {
+        int index = bucket * BUCKET_SIZE;
+        for (int i = 0; i < BUCKET_SIZE; i++, index++) {
+            if (hashes[index] == 0) {
+                hashes[index] = hash;
+                keys[index] = key;
+                values[index] = value;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // moves stashed entries back to the buckets once there is room for them
+    private void unstash() {
+        for (int i = stashCount - 1; i >= 0; i--) {
+            if (place(stashHashes[i], stashKeys[i], stashValues[i])) {
+                stashCount--;
+                stashHashes[i] = stashHashes[stashCount];
+                stashKeys[i] = stashKeys[stashCount];
+                stashValues[i] = stashValues[stashCount];
+                stashHashes[stashCount] = 0;
+                stashKeys[stashCount] = null;
+                stashValues[stashCount] = null;
+            }
+        }
+    }
+
+    private void rebuild(int bucketCount, boolean reseed) {
+        long[] oldHashes = hashes;
+        String[] oldKeys = keys;
+        String[] oldValues = values;
+        int oldStashCount = stashCount;
+        long[] oldStashHashes = Arrays.copyOf(stashHashes, oldStashCount);
+        String[] oldStashKeys = Arrays.copyOf(stashKeys, oldStashCount);
+        String[] oldStashValues = Arrays.copyOf(stashValues, oldStashCount);
+        int generation = seedGeneration;
+
+        if (reseed) {
+            seed1 = Hashing.newSeed();
+            seed2 = Hashing.newSeed();
+            seedGeneration++;
+        }
+        allocate(bucketCount);
+        for (int i = 0; i < stashCount; i++) {
+            stashHashes[i] = 0;
+            stashKeys[i] = null;
+            stashValues[i] = null;
+        }
+        stashCount = 0;
+
+        for (int i = 0; i < oldHashes.length; i++) {
+            if (oldHashes[i] != 0) {
+                insert(generation == seedGeneration ? oldHashes[i] : hash(oldKeys[i]), oldKeys[i], oldValues[i]);
+            }
+        }
+        for (int i = 0; i < oldStashCount; i++) {
+            long hash = generation == seedGeneration ? oldStashHashes[i] : hash(oldStashKeys[i]);
+            insert(hash, oldStashKeys[i], oldStashValues[i]);
+        }
+    }
+
+    private void allocate(int bucketCount) {
+        hashes = new long[bucketCount * BUCKET_SIZE];
+        keys = new String[bucketCount * BUCKET_SIZE];
+        values = new String[bucketCount * BUCKET_SIZE];
+        bucketMask = bucketCount - 1;
+    }
+
+    private int firstBucket(long hash) {
+        return (int) (hash >>> 32) & bucketMask;
+    }
+
+    private int secondBucket(long hash) {
+        return (int) hash & bucketMask;
+    }
+
+    private int nextRandom() {
+        random ^= random << 13;
+        random ^= random >>> 17;
+        random ^= random << 5;
+        return random & Integer.MAX_VALUE;
+    }
+
+    // both hashes packed into one long, the highest bit of the second one set so that the result is never zero
+    private long hash(String key) {
+        int h1 = seededHash.hash(key, seed1);
+        int h2 = seededHash.hash(key, seed2) | Integer.MIN_VALUE;
+        return (long) h1 << 32 | (h2 & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.hashtable;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Releases the native memory of direct ByteBuffers right away instead of waiting for the garbage collector,
+ * which only notices how little heap such buffers take.
+ *
+ * The JDK has no public way to do it, so this goes through <code>sun.misc.Unsafe.invokeCleaner</code>
+ * of the jdk.unsupported module. If it is not available, buffers are left to the garbage collector.
+ */
+final class DirectMemory {
+
+    static final private Object UNSAFE;
+    static final private Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            unsafe = null;
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private DirectMemory() {
+    }
+
+    /**
+     * Frees the memory of the buffer. Neither the buffer nor any of its duplicates may be accessed afterwards.
+     * Does nothing for <code>null</code> or a heap buffer.
+     */
+    static void free(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect() || INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException e) {
+            // the garbage collector frees it later
+        }
+    }
+}
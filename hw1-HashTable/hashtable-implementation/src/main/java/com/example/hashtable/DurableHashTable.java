@@ -0,0 +1,541 @@
+package com.example.hashtable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Hash table whose modifications survive crashes of the process. Thread-safe.
+ *
+ * Every <code>put</code>, <code>remove</code> and <code>clear</code> is appended to a write-ahead log
+ * in the directory and returns once the log is forced to the disk. Records of all threads that arrive
+ * within one batch window are forced together, so concurrent writers share a single fsync.
+ *
+ * Once a log grows over the compaction threshold, writing switches to a new log and the mappings
+ * are written to a {@link HashTable#writeSnapshot(Path) snapshot} in the background;
+ * the snapshot replaces the older logs. Opening the directory loads the latest snapshot
+ * and replays only the logs written after it. Creating a log and moving a snapshot into place are forced
+ * to the directory before anything relies on them, and older files are deleted only after that.
+ * A failed compaction keeps the older files and, unless a later one succeeds, is reported by {@link #close()}.
+ *
+ * The directory holds files <code>snapshot-N</code>, which contains every record of the logs
+ * before <code>log-N</code>, and <code>log-N</code>. A log is a sequence of records:
+ *
+ *   int  -- length of the payload
+ *   int  -- CRC32 of the payload
+ *   payload: byte operation followed by its arguments, a key for REMOVE, a key and a value for PUT;
+ *            a string is an int length, -1 for null, followed by UTF-8 bytes
+ *
+ * A record cut short or damaged at the end of the newest log is what a crash in the middle of a write
+ * leaves behind, so replay stops there; a damaged record anywhere else fails the opening.
+ */
+public class DurableHashTable implements Closeable {
+
+    static final private byte PUT = 1;
+    static final private byte REMOVE = 2;
+    static final private byte CLEAR = 3;
+
+    static final private int RECORD_HEADER_SIZE = 8;
+    static final private int NULL_LENGTH = -1;
+    static final private String SNAPSHOT_PREFIX = "snapshot-";
+    static final private String LOG_PREFIX = "log-";
+
+    static final private Duration DEFAULT_BATCH_WINDOW = Duration.ofMillis(2);
+    static final private long DEFAULT_COMPACTION_THRESHOLD = 64L << 20;
+
+    private final Path directory;
+    private final long batchWindowNanos;
+    private final long compactionThreshold;
+
+    // guards everything below up to the flusher, which is the only one touching the log channel
+    private final Object lock = new Object();
+    // kept persistent so that compaction takes a snapshot in constant time and writes it without the lock
+    private final PersistentHashTable table = new PersistentHashTable();
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long appendedRecords;
+    private long durableRecords;
+    private IOException failure;
+    private IOException compactionFailure;
+    private boolean closed;
+    private boolean compacting;
+
+    private FileChannel log;
+    private long logGeneration;
+    private long logSize;
+
+    private final Thread flusher;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "durable-hash-table-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Opens the table stored in the directory, creating an empty one if there is none,
+     * with a batch window of 2 milliseconds and a compaction threshold of 64 MiB.
+     * @throws IOException if the directory can not be read or its files are damaged
+     */
+    public DurableHashTable(Path directory) throws IOException {
+        this(directory, DEFAULT_BATCH_WINDOW, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Opens the table stored in the directory, creating an empty one if there is none.
+     * @param batchWindow           how long the log waits for more records before forcing them to the disk;
+     *                              zero forces whatever has arrived right away
+     * @param compactionThreshold   size of a log in bytes after which it is folded into a snapshot
+     * @throws IllegalArgumentException if the window is negative or the threshold is not positive
+     * @throws IOException if the directory can not be read or its files are damaged
+     */
+    public DurableHashTable(Path directory, Duration batchWindow, long compactionThreshold) throws IOException {
+        if (batchWindow.isNegative()) {
+            throw new IllegalArgumentException("Negative batch window " + batchWindow);
+        }
+        if (compactionThreshold <= 0) {
+            throw new IllegalArgumentException("Non-positive compaction threshold " + compactionThreshold);
+        }
+        this.directory = directory;
+        this.batchWindowNanos = batchWindow.toNanos();
+        this.compactionThreshold = compactionThreshold;
+
+        Files.createDirectories(directory);
+        recover();
+
+        flusher = new Thread(this::flushLoop, "durable-hash-table-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Checks if a mapping with the specified key exists.
+     * @return	<code>true</code> if the mapping exists and <code>false</code> otherwise
+     */
+    public boolean contains(String key) {
+        synchronized (lock) {
+            return table.contains(key);
+        }
+    }
+
+    /**
+     * Returns the value mapped to the specified key. The value may not be durable yet
+     * if the write that stored it has not returned.
+     * @return	 the value mapped to the specified key
+     * 			 or <code>null</code> if there is no such mapping
+     */
+    public String get(String key) {
+        synchronized (lock) {
+            return table.get(key);
+        }
+    }
+
+    /**
+     * Maps the key to the value and returns once the change is on the disk.
+     * @return  previous value mapped to the key
+     * 			or <code>null</code> if there is no such value
+     * @throws UncheckedIOException if the log can not be written
+     * @throws IllegalStateException if the table is closed
+     */
+    public String put(String key, String value) {
+        String previous;
+        long record;
+        synchronized (lock) {
+            checkOpen();
+            previous = table.put(key, value);
+            record = append(PUT, key, value);
+        }
+        awaitDurable(record);
+        return previous;
+    }
+
+    /**
+     * Removes the mapping with the specified key and returns once the change is on the disk.
+     * @return  value mapped to the key
+     * 			or <code>null</code> if there is no such value
+     * @throws UncheckedIOException if the log can not be written
+     * @throws IllegalStateException if the table is closed
+     */
+    public String remove(String key) {
+        String removed;
+        long record;
+        synchronized (lock) {
+            checkOpen();
+            removed = table.remove(key);
+            record = append(REMOVE, key, null);
+        }
+        awaitDurable(record);
+        return removed;
+    }
+
+    /**
+     * Removes all mappings and returns once the change is on the disk.
+     * @throws UncheckedIOException if the log can not be written
+     * @throws IllegalStateException if the table is closed
+     */
+    public void clear() {
+        long record;
+        synchronized (lock) {
+            checkOpen();
+            table.clear();
+            record = append(CLEAR, null, null);
+        }
+        awaitDurable(record);
+    }
+
+    /**
+     * Returns the number of mappings in the table.
+     * @return	the number of mapping stored
+     */
+    public int size() {
+        synchronized (lock) {
+            return table.size();
+        }
+    }
+
+    /**
+     * Forces the pending records to the disk, waits for a running compaction and closes the log.
+     * @throws IOException if the log could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+            compactor.shutdown();
+            compactor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.close();
+        synchronized (lock) {
+            if (failure != null) {
+                if (compactionFailure != null) {
+                    failure.addSuppressed(compactionFailure);
+                }
+                throw failure;
+            }
+            if (compactionFailure != null) {
+                throw compactionFailure;
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The table is closed");
+        }
+        if (failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+    }
+
+    // returns the number of the record, which is durable once durableRecords reaches it
+    private long append(byte operation, String key, String value) {
+        var payload = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(payload)) {
+            out.writeByte(operation);
+            if (operation != CLEAR) {
+                writeString(out, key);
+            }
+            if (operation == PUT) {
+                writeString(out, value);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] bytes = payload.toByteArray();
+        var checksum = new CRC32();
+        checksum.update(bytes);
+
+        var header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        header.putInt(bytes.length).putInt((int) checksum.getValue());
+        pending.write(header.array(), 0, RECORD_HEADER_SIZE);
+        pending.write(bytes, 0, bytes.length);
+        lock.notifyAll();
+        return ++appendedRecords;
+    }
+
+    private void awaitDurable(long record) {
+        boolean interrupted = false;
+        synchronized (lock) {
+            while (durableRecords < record && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (durableRecords < record) {
+                throw new UncheckedIOException(failure);
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            synchronized (lock) {
+                while (pending.size() == 0 && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // only close stops the flusher
+                    }
+                }
+                if (pending.size() == 0) {
+                    return;
+                }
+            }
+            if (batchWindowNanos > 0) {
+                // let more writers join the batch
+                try {
+                    TimeUnit.NANOSECONDS.sleep(batchWindowNanos);
+                } catch (InterruptedException e) {
+                    // flush earlier
+                }
+            }
+            try {
+                flush();
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        ByteArrayOutputStream batch;
+        long batchRecords;
+        PersistentHashTable.Snapshot snapshot = null;
+        synchronized (lock) {
+            batch = pending;
+            batchRecords = appendedRecords;
+            pending = new ByteArrayOutputStream();
+            if (!compacting && logSize + batch.size() >= compactionThreshold) {
+                // the snapshot holds exactly the records up to the end of this batch
+                compacting = true;
+                snapshot = table.snapshot();
+            }
+        }
+
+        var buffer = ByteBuffer.wrap(batch.toByteArray());
+        while (buffer.hasRemaining()) {
+            log.write(buffer);
+        }
+        log.force(false);
+        logSize += batch.size();
+
+        if (snapshot != null) {
+            log.close();
+            openLog(logGeneration + 1);
+            long generation = logGeneration;
+            var folded = snapshot;
+            compactor.execute(() -> compact(folded, generation));
+        }
+
+        synchronized (lock) {
+            durableRecords = batchRecords;
+            lock.notifyAll();
+        }
+    }
+
+    /*
+     * Writes snapshot-generation and deletes the files it makes redundant. A failure leaves the logs in place
+     * and is kept for close, the next compaction tries again.
+     */
+    private void compact(PersistentHashTable.Snapshot snapshot, long generation) {
+        try {
+            ChainedEngine.writeSnapshot(snapshotPath(generation), snapshot.size(), snapshot::forEach);
+            for (long older : generations(SNAPSHOT_PREFIX)) {
+                if (older < generation) {
+                    Files.deleteIfExists(snapshotPath(older));
+                }
+            }
+            for (long older : generations(LOG_PREFIX)) {
+                if (older < generation) {
+                    Files.deleteIfExists(logPath(older));
+                }
+            }
+            synchronized (lock) {
+                compactionFailure = null;
+            }
+        } catch (IOException e) {
+            synchronized (lock) {
+                compactionFailure = e;
+            }
+        } finally {
+            synchronized (lock) {
+                compacting = false;
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        var snapshots = generations(SNAPSHOT_PREFIX);
+        long first = 0;
+        if (!snapshots.isEmpty()) {
+            first = snapshots.get(snapshots.size() - 1);
+            HashTable.loadSnapshot(snapshotPath(first)).forEach(table::put);
+        }
+
+        var logs = new ArrayList<Long>();
+        for (long generation : generations(LOG_PREFIX)) {
+            if (generation >= first) {
+                logs.add(generation);
+            }
+        }
+        for (int i = 0; i < logs.size(); i++) {
+            replay(logPath(logs.get(i)), i == logs.size() - 1);
+        }
+
+        long next = first;
+        if (!logs.isEmpty()) {
+            next = Math.max(next, logs.get(logs.size() - 1) + 1);
+        }
+        openLog(next);
+    }
+
+    // a damaged tail of the newest log is cut off, so that it does not fail the next opening
+    private void replay(Path path, boolean newest) throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var buffer = ByteBuffer.allocate(Math.toIntExact(channel.size()));
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading
+            }
+            buffer.flip();
+
+            int valid = replayRecords(buffer);
+            if (valid < buffer.limit()) {
+                if (!newest) {
+                    throw new IOException("Damaged record in " + path);
+                }
+                channel.truncate(valid);
+                channel.force(false);
+            }
+        }
+    }
+
+    // returns the length of the prefix of the buffer made of whole records
+    private int replayRecords(ByteBuffer buffer) {
+        var checksum = new CRC32();
+        while (buffer.hasRemaining()) {
+            int start = buffer.position();
+            try {
+                int length = buffer.getInt();
+                int expected = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    throw new BufferUnderflowException();
+                }
+                var payload = buffer.slice().limit(length);
+                checksum.reset();
+                checksum.update(payload.duplicate());
+                if ((int) checksum.getValue() != expected) {
+                    throw new BufferUnderflowException();
+                }
+                buffer.position(buffer.position() + length);
+                apply(payload);
+            } catch (BufferUnderflowException e) {
+                return start;
+            }
+        }
+        return buffer.limit();
+    }
+
+    private void apply(ByteBuffer payload) {
+        byte operation = payload.get();
+        switch (operation) {
+            case PUT:
+                table.put(readString(payload), readString(payload));
+                break;
+            case REMOVE:
+                table.remove(readString(payload));
+                break;
+            case CLEAR:
+                table.clear();
+                break;
+            default:
+                throw new BufferUnderflowException();
+        }
+    }
+
+    private void openLog(long generation) throws IOException {
+        log = FileChannel.open(logPath(generation),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        // forcing the records of a log is no use if the log itself may disappear after a crash
+        SnapshotFile.forceDirectory(directory);
+        logGeneration = generation;
+        logSize = 0;
+    }
+
+    private List<Long> generations(String prefix) throws IOException {
+        var result = new ArrayList<Long>();
+        try (var files = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (var file : files) {
+                String suffix = file.getFileName().toString().substring(prefix.length());
+                if (suffix.matches("\\d+")) {
+                    result.add(Long.parseLong(suffix));
+                }
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private Path snapshotPath(long generation) {
+        return directory.resolve(SNAPSHOT_PREFIX + generation);
+    }
+
+    private Path logPath(long generation) {
+        return directory.resolve(LOG_PREFIX + generation);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        if (length < 0 || length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        var bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
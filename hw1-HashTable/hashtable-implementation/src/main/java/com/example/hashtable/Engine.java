@@ -0,0 +1,78 @@
+package com.example.hashtable;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Storage strategy behind {@link HashTable}. Every implementation maps String keys to String values
+ * and accepts <code>null</code> both as a key and as a value.
+ */
+interface Engine {
+    boolean contains(String key);
+
+    String get(String key);
+
+    String put(String key, String value);
+
+    String remove(String key);
+
+    void clear();
+
+    int size();
+
+    /**
+     * Frees memory the engine holds outside of the Java heap. The engine must not be used afterwards
+     * except for {@link #clear()}, which makes it usable again.
+     */
+    default void release() {
+    }
+
+    /**
+     * Prepares the storage for the specified number of additional entries,
+     * so that inserting them does not trigger any resize.
+     */
+    void reserve(int additional);
+
+    /**
+     * Returns the number of slots mappings are spread over, such as buckets, for splitting iteration into ranges.
+     * Finishes any pending rearrangement first, so slots keep their mappings until the next modification.
+     */
+    int slotCount();
+
+    /**
+     * Passes every mapping stored in the slots from <code>from</code> inclusive to <code>to</code> exclusive
+     * to the action. The engine must not be modified until it returns.
+     */
+    void forEachInSlots(int from, int to, BiConsumer<String, String> action);
+
+    /**
+     * Passes every mapping to the action. The engine must not be modified until it returns.
+     */
+    default void forEach(BiConsumer<String, String> action) {
+        forEachInSlots(0, slotCount(), action);
+    }
+
+    default String[] getAll(String[] keys) {
+        var result = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            result[i] = get(keys[i]);
+        }
+        return result;
+    }
+
+    default String[] putAll(String[] keys, String[] values) {
+        reserve(keys.length);
+        var result = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            result[i] = put(keys[i], values[i]);
+        }
+        return result;
+    }
+
+    default String[] removeAll(String[] keys) {
+        var result = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            result[i] = remove(keys[i]);
+        }
+        return result;
+    }
+}
@@ -1,24 +1,136 @@
 package com.example.hashtable;
 
-import java.util.List;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 /**
- * Provides list-based implementation of hash table with String as both key and value type.
+ * Provides implementation of hash table with String as both key and value type.
+ *
+ * The memory layout is chosen on construction, see {@link Layout}.
+ *
+ * Streams and {@link #forEach(BiConsumer)} are fail-fast: adding or removing a key while they run makes them
+ * throw {@link ConcurrentModificationException} on a best-effort basis. Rewriting a value is not a modification.
+ *
+ * A table with the {@link Layout#OFF_HEAP} layout should be closed to give its native memory back right away,
+ * otherwise the memory is freed only when the garbage collector gets to the table. Closing other layouts does nothing.
  */
-public class HashTable {
+public class HashTable implements AutoCloseable {
 
-    static final private int CAPACITY_MULTIPLIER = 2;
-    static final private int INVERSE_LOAD_FACTOR = 2;
-    static final private int INIT_CAPACITY = 11;
+    /**
+     * Memory layout of a HashTable.
+     */
+    public enum Layout {
+        /**
+         * Separate chaining, every bucket is a {@link ListMap}.
+         */
+        CHAINED,
+        /**
+         * Same as {@link #CHAINED}, but growing is spread over the following operations:
+         * each of them moves a bounded number of buckets to the new bucket array.
+         * Keeps the worst-case latency of a single operation flat while the table grows.
+         */
+        CHAINED_INCREMENTAL,
+        /**
+         * Same as {@link #CHAINED}, with a counting Bloom filter in front of the buckets.
+         * Most lookups of absent keys are answered by one cache line of the filter. Suits miss-heavy workloads.
+         */
+        CHAINED_FILTERED,
+        /**
+         * Open addressing with Robin Hood linear probing over flat parallel arrays.
+         * Needs less memory per entry and scans adjacent slots on lookup.
+         */
+        OPEN_ADDRESSING,
+        /**
+         * Open addressing index and UTF-8 encoded entries kept in direct ByteBuffers outside of the Java heap.
+         * Nothing for the garbage collector to scan, but every <code>get</code> decodes a new String.
+         */
+        OFF_HEAP,
+        /**
+         * Open addressing laid out as a Swiss table: one control byte per slot keeps 7 bits of the hash
+         * and a whole group of control bytes is compared at once. Suits read-heavy workloads.
+         */
+        SWISS,
+        /**
+         * Bucketized cuckoo hashing: a key is always in one of its two 4-slot buckets or in a tiny stash,
+         * so lookups are O(1) in the worst case. Inserts may move other entries around.
+         */
+        CUCKOO,
+        /**
+         * Open addressing index of references into chunked byte arenas. Strings are packed as Latin-1 bytes
+         * when they fit and every distinct value is stored once, so short ASCII keys and repeated values
+         * take several times less heap. Keys are compared as bytes, but every <code>get</code> creates a new String.
+         */
+        COMPACT
+    }
 
-    private ListMap[] buckets;
-    private int entriesCount;
+    private final Engine engine;
+    // changes whenever keys are added or removed or the engine may have moved entries around
+    private int modificationCount;
 
     /**
-     * Constructs an empty HashTable
+     * Constructs an empty chained HashTable
      */
     public HashTable() {
-        clear();
+        this(Layout.CHAINED);
+    }
+
+    /**
+     * Constructs an empty HashTable with the specified memory layout
+     * @throws NullPointerException if layout is null
+     */
+    public HashTable(Layout layout) {
+        switch (layout) {
+            case OPEN_ADDRESSING:
+                engine = new RobinHoodEngine();
+                break;
+            case SWISS:
+                engine = new SwissEngine();
+                break;
+            case CUCKOO:
+                engine = new CuckooEngine();
+                break;
+            case OFF_HEAP:
+                engine = new OffHeapEngine();
+                break;
+            case COMPACT:
+                engine = new CompactEngine();
+                break;
+            case CHAINED_INCREMENTAL:
+                engine = new ChainedEngine(true);
+                break;
+            case CHAINED_FILTERED:
+                engine = new ChainedEngine(false, true);
+                break;
+            case CHAINED:
+            default:
+                engine = new ChainedEngine();
+                break;
+        }
+    }
+
+    private HashTable(Engine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Loads a table written by {@link #writeSnapshot(Path)}. The file is memory-mapped and its entries are hashed
+     * with the new secret seed of the loaded table, snapshots do not keep seeds.
+     * The loaded table has {@link Layout#CHAINED} layout whatever layout the snapshot was written from.
+     * @throws IOException if the file can not be read, is corrupted or has an unsupported version
+     */
+    public static HashTable loadSnapshot(Path path) throws IOException {
+        return new HashTable(ChainedEngine.loadSnapshot(path));
     }
 
     /**
@@ -27,7 +139,7 @@ public class HashTable {
      *             <code>false</code> otherwise.
      */
     public boolean contains(String key) {
-        return getBucket(key).contains(key);
+        return engine.contains(key);
     }
 
     /**
@@ -36,7 +148,7 @@ public class HashTable {
      * 			<code>null</code> otherwise
      */
     public String get(String key) {
-        return getBucket(key).get(key);
+        return engine.get(key);
     }
 
     /**
@@ -45,13 +157,11 @@ public class HashTable {
      * 			or <code>null</code> if there were no previous value
      */
     public String put(String key, String value) {
-        ListMap l = getBucket(key);
-        int oldLSize = l.size();
-        String rewritten = l.put(key, value);
-
-        entriesCount += l.size() - oldLSize;
-
-        tryGrow();
+        int oldSize = engine.size();
+        String rewritten = engine.put(key, value);
+        if (engine.size() != oldSize) {
+            modificationCount++;
+        }
         return rewritten;
     }
 
@@ -62,24 +172,64 @@ public class HashTable {
      * 			or <code>null</code> if there were no previous value
      */
     public String remove(String key) {
-        ListMap l = getBucket(key);
-        int oldLSize = l.size();
-        String removed = l.remove(key);
-        
-        entriesCount += l.size() - oldLSize;
-
+        int oldSize = engine.size();
+        String removed = engine.remove(key);
+        if (engine.size() != oldSize) {
+            modificationCount++;
+        }
         return removed;
     }
 
+    /**
+     * Returns values mapped to each of the specified keys.
+     * @return  an array with the value mapped to <code>keys[i]</code> or <code>null</code> at index <code>i</code>
+     * @throws NullPointerException if keys is null
+     */
+    public String[] getAll(String[] keys) {
+        return engine.getAll(keys);
+    }
+
+    /**
+     * Stores each of <code>values[i]</code> by <code>keys[i]</code>. Rewrites existing values.
+     * Makes room for all the keys at once, so it is cheaper than putting them one by one.
+     * If a key repeats, the later value wins.
+     * @return  an array with the value previously stored by <code>keys[i]</code> or <code>null</code> at index <code>i</code>
+     * @throws IllegalArgumentException if arrays have different lengths
+     * @throws NullPointerException if any of arrays is null
+     */
+    public String[] putAll(String[] keys, String[] values) throws IllegalArgumentException {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException();
+        }
+        modificationCount++;
+        return engine.putAll(keys, values);
+    }
+
+    /**
+     * Removes values stored by each of the specified keys.
+     * @return  an array with the value removed by <code>keys[i]</code> or <code>null</code> at index <code>i</code>
+     * @throws NullPointerException if keys is null
+     */
+    public String[] removeAll(String[] keys) {
+        modificationCount++;
+        return engine.removeAll(keys);
+    }
+
     /**
      * Removes all entries from HashTable
      */
     public void clear() {
-        buckets = new ListMap[INIT_CAPACITY];
-        for (int i = 0; i < buckets.length; i++) {
-            buckets[i] = new ListMap();
-        }
-        entriesCount = 0;
+        modificationCount++;
+        engine.clear();
+    }
+
+    /**
+     * Frees memory the table holds outside of the Java heap. The table must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        modificationCount++;
+        engine.release();
     }
 
 
@@ -88,38 +238,182 @@ public class HashTable {
      * @return	the number of mapping stored
      */
     public int size() {
-        return entriesCount;
+        return engine.size();
+    }
+
+    /**
+     * Returns hot-path metrics of this table. They are collected only if the JVM was started with
+     * <code>-Dcom.example.hashtable.metrics=true</code>, and only chained layouts have them.
+     * Resizes are also reported to Flight Recorder as <code>com.example.hashtable.Resize</code> events.
+     * @return  metrics of this table,
+     * 			or <code>null</code> if metrics are disabled or the layout is not chained
+     */
+    public HashTableMetricsMBean metrics() {
+        return engine instanceof ChainedEngine ? ((ChainedEngine) engine).metrics() : null;
+    }
+
+    /**
+     * Registers {@link #metrics()} with the platform MBean server as
+     * <code>com.example.hashtable:type=HashTable,name=</code><i>name</i>.
+     * @return  the name the metrics are registered under
+     * @throws IllegalStateException if this table has no metrics
+     * @throws JMException if the name is not valid or already taken
+     */
+    public ObjectName registerMetrics(String name) throws JMException {
+        var metrics = metrics();
+        if (metrics == null) {
+            throw new IllegalStateException("Metrics are disabled or not supported by the layout");
+        }
+        var objectName = new ObjectName("com.example.hashtable:type=HashTable,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+        return objectName;
     }
 
-    private ListMap getBucket(String key) {
-        return buckets[Math.floorMod(extendedHashCode(key), buckets.length)];
+    /**
+     * Passes every mapping to the action without creating an entry object for it.
+     * @throws ConcurrentModificationException if the action adds or removes keys
+     * @throws NullPointerException if action is null
+     */
+    public void forEach(BiConsumer<String, String> action) {
+        int expectedModificationCount = modificationCount;
+        engine.forEach(action);
+        if (modificationCount != expectedModificationCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Returns a stream of all mappings. The stream splits over ranges of buckets, so it can be made parallel.
+     */
+    public Stream<ListMap.Entry> entries() {
+        return StreamSupport.stream(new SlotSpliterator<>(ListMap.Entry::new, Spliterator.DISTINCT), false);
     }
 
-    private void tryGrow() {
-        if (size() * INVERSE_LOAD_FACTOR < buckets.length) {
+    /**
+     * Returns a stream of all keys, see {@link #entries()}.
+     */
+    public Stream<String> keys() {
+        return StreamSupport.stream(new SlotSpliterator<>((key, value) -> key, Spliterator.DISTINCT), false);
+    }
+
+    /**
+     * Returns a stream of all values, see {@link #entries()}.
+     */
+    public Stream<String> values() {
+        return StreamSupport.stream(new SlotSpliterator<>((key, value) -> value, 0), false);
+    }
+
+    /**
+     * Writes all mappings to the specified file, replacing it. Use {@link #loadSnapshot(Path)} to read it back.
+     * Tables of layouts other than {@link Layout#CHAINED} are arranged into chained buckets on the way.
+     * @throws IOException if the file can not be written
+     */
+    public void writeSnapshot(Path path) throws IOException {
+        if (engine instanceof ChainedEngine) {
+            ((ChainedEngine) engine).writeSnapshot(path);
             return;
         }
+        ChainedEngine.writeSnapshot(path, engine.size(), engine::forEach);
+    }
+
+    /*
+     * Splits over ranges of engine slots. Binds to the table on the first use, so that a stream
+     * sees modifications made before its terminal operation starts. Only the unsplit spliterator
+     * knows its size exactly, halves of it estimate theirs.
+     */
+    private class SlotSpliterator<T> implements Spliterator<T> {
+        private final BiFunction<String, String, T> mapper;
+        private final int characteristics;
+        // mappings of a slot already read by tryAdvance, but not passed on
+        private final ArrayDeque<T> buffer = new ArrayDeque<>();
+        private int index;
+        // -1 until bound
+        private int fence = -1;
+        private long estimate;
+        private int expectedModificationCount;
+        private boolean split;
 
-        int capacityNew = buckets.length * CAPACITY_MULTIPLIER;
-        var bucketsNew = new ListMap[capacityNew];
+        private SlotSpliterator(BiFunction<String, String, T> mapper, int characteristics) {
+            this.mapper = mapper;
+            this.characteristics = characteristics;
+        }
 
-        for (int i = 0; i < capacityNew; i++) {
-            bucketsNew[i] = new ListMap();
+        private SlotSpliterator(SlotSpliterator<T> parent, int index, int fence) {
+            this(parent.mapper, parent.characteristics);
+            this.index = index;
+            this.fence = fence;
+            this.estimate = parent.estimate;
+            this.expectedModificationCount = parent.expectedModificationCount;
+            this.split = true;
         }
-        for (var l : buckets) {
-            for (var entry = l.pop(); entry != null; entry = l.pop()) {
-                bucketsNew[Math.floorMod(extendedHashCode(entry.key), capacityNew)].put(entry.key, entry.value);
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            bind();
+            while (buffer.isEmpty() && index < fence) {
+                engine.forEachInSlots(index, index + 1, (key, value) -> buffer.add(mapper.apply(key, value)));
+                index++;
+            }
+            if (buffer.isEmpty()) {
+                return false;
             }
+            action.accept(buffer.poll());
+            if (estimate > 0) {
+                estimate--;
+            }
+            checkForModification();
+            return true;
         }
 
-        buckets = bucketsNew;
-    }
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            bind();
+            while (!buffer.isEmpty()) {
+                action.accept(buffer.poll());
+            }
+            engine.forEachInSlots(index, fence, (key, value) -> action.accept(mapper.apply(key, value)));
+            index = fence;
+            estimate = 0;
+            checkForModification();
+        }
 
-    private int extendedHashCode(String s) {
-        if (s == null) {
-            return 0;
-        } else {
-            return s.hashCode();
+        @Override
+        public Spliterator<T> trySplit() {
+            bind();
+            int middle = (index + fence) >>> 1;
+            if (!buffer.isEmpty() || middle <= index) {
+                return null;
+            }
+            split = true;
+            estimate >>>= 1;
+            var prefix = new SlotSpliterator<>(this, index, middle);
+            index = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            bind();
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return split ? characteristics : characteristics | Spliterator.SIZED;
+        }
+
+        private void bind() {
+            if (fence < 0) {
+                fence = engine.slotCount();
+                estimate = engine.size();
+                expectedModificationCount = modificationCount;
+            }
+        }
+
+        private void checkForModification() {
+            if (modificationCount != expectedModificationCount) {
+                throw new ConcurrentModificationException();
+            }
         }
     }
 }
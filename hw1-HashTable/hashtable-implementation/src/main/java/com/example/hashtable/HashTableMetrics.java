@@ -0,0 +1,72 @@
+package com.example.hashtable;
+
+/**
+ * Metrics of a {@link ChainedEngine}.
+ *
+ * Collected only if the <code>com.example.hashtable.metrics</code> system property is <code>true</code>
+ * when the class is loaded. The flag is a constant, so with metrics off the JIT compiler
+ * removes the recording code from the hot paths altogether.
+ */
+class HashTableMetrics implements HashTableMetricsMBean {
+    static final boolean ENABLED = Boolean.getBoolean("com.example.hashtable.metrics");
+
+    static final private int HISTOGRAM_SIZE = 16;
+
+    private final ChainedEngine engine;
+    private final long[] chainLengths = new long[HISTOGRAM_SIZE];
+    private long lookupCount;
+    private long resizeCount;
+    private long resizeTotalNanos;
+    private long resizeMaxNanos;
+
+    HashTableMetrics(ChainedEngine engine) {
+        this.engine = engine;
+    }
+
+    // the number of keys in the bucket the looked up key was compared with
+    void recordLookup(int comparisons) {
+        lookupCount++;
+        chainLengths[Math.min(comparisons, HISTOGRAM_SIZE - 1)]++;
+    }
+
+    void recordResize(long nanos) {
+        resizeCount++;
+        resizeTotalNanos += nanos;
+        resizeMaxNanos = Math.max(resizeMaxNanos, nanos);
+    }
+
+    @Override
+    public long getLookupCount() {
+        return lookupCount;
+    }
+
+    @Override
+    public long[] getChainLengthHistogram() {
+        return chainLengths.clone();
+    }
+
+    @Override
+    public long getResizeCount() {
+        return resizeCount;
+    }
+
+    @Override
+    public long getResizeTotalNanos() {
+        return resizeTotalNanos;
+    }
+
+    @Override
+    public long getResizeMaxNanos() {
+        return resizeMaxNanos;
+    }
+
+    @Override
+    public double getLoadFactor() {
+        return engine.loadFactor();
+    }
+
+    @Override
+    public int getLongestBucket() {
+        return engine.longestBucket();
+    }
+}
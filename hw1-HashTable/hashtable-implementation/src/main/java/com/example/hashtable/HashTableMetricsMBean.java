@@ -0,0 +1,48 @@
+package com.example.hashtable;
+
+/**
+ * Hot-path metrics of a chained {@link HashTable}, see {@link HashTable#metrics()}.
+ * Register it with an MBean server to watch a table from JMX tools, or use {@link HashTable#registerMetrics(String)}.
+ *
+ * Counters are updated by the thread using the table without any synchronization,
+ * so other threads may see them slightly behind.
+ */
+public interface HashTableMetricsMBean {
+    /**
+     * Returns the number of <code>get</code> and <code>contains</code> calls that looked into a bucket.
+     */
+    long getLookupCount();
+
+    /**
+     * Returns how many lookups compared the key with <code>i</code> keys of its bucket at index <code>i</code>,
+     * which is the position of a found key in a list bucket or the whole length for a missing one;
+     * the last element counts all longer scans.
+     */
+    long[] getChainLengthHistogram();
+
+    /**
+     * Returns how many times the table started to grow.
+     */
+    long getResizeCount();
+
+    /**
+     * Returns the time spent growing in total, in nanoseconds. In incremental mode only the time
+     * of starting a resize is counted, the migration is spread over later operations.
+     */
+    long getResizeTotalNanos();
+
+    /**
+     * Returns the longest time a single resize took, in nanoseconds.
+     */
+    long getResizeMaxNanos();
+
+    /**
+     * Returns the number of entries per bucket.
+     */
+    double getLoadFactor();
+
+    /**
+     * Returns the number of entries in the longest bucket. Scans all buckets.
+     */
+    int getLongestBucket();
+}
@@ -0,0 +1,257 @@
+package com.example.hashtable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.example.hashtable.PartitionProtocol.*;
+
+/**
+ * Serves one partition of a {@link PartitionedHashTable} over loopback TCP.
+ *
+ * Every connection is handled by its own thread, requests of all connections go to one {@link HashTable}
+ * one at a time. Responses of pipelined requests are buffered and flushed once no more requests
+ * are waiting, so a burst of requests costs a single write. See {@link PartitionProtocol} for the format.
+ *
+ * Run it as a separate process with the port as the only argument.
+ */
+public class HashTableServer implements Closeable {
+
+    private final HashTable table = new HashTable();
+    private final ServerSocket serverSocket;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Starts serving on the specified loopback port; 0 picks a free one.
+     * @throws IOException if the port can not be bound
+     */
+    public HashTableServer(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        var acceptor = new Thread(this::acceptConnections, "hash-table-server-" + port());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Starts a server on the port given as the argument and serves until the process is killed.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: HashTableServer <port>");
+            System.exit(1);
+        }
+        var server = new HashTableServer(Integer.parseInt(args[0]));
+        System.out.println("Serving on " + server.address());
+    }
+
+    /**
+     * Returns the address clients should connect to.
+     */
+    public InetSocketAddress address() {
+        return new InetSocketAddress(serverSocket.getInetAddress(), port());
+    }
+
+    /**
+     * Returns the port the server listens on.
+     */
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the number of mappings stored in this partition.
+     */
+    public int size() {
+        synchronized (table) {
+            return table.size();
+        }
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones. The stored mappings are lost.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (var connection : connections) {
+            connection.close();
+        }
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                var socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                var worker = new Thread(() -> serve(socket), "hash-table-connection-" + socket.getPort());
+                worker.setDaemon(true);
+                worker.start();
+            } catch (IOException e) {
+                // the socket was closed
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            while (true) {
+                int operation = in.read();
+                if (operation < 0) {
+                    return;
+                }
+                try {
+                    execute(operation, in, out);
+                } catch (IllegalArgumentException e) {
+                    out.writeByte(ERROR);
+                    writeString(out, e.getMessage());
+                    out.flush();
+                    return;
+                }
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (EOFException e) {
+            // the client disconnected in the middle of a request
+        } catch (IOException e) {
+            // the connection broke or the server was closed
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private void execute(int operation, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (operation) {
+            case CONTAINS: {
+                String key = readString(in);
+                boolean found;
+                synchronized (table) {
+                    found = table.contains(key);
+                }
+                out.writeByte(OK);
+                out.writeBoolean(found);
+                break;
+            }
+            case GET: {
+                String key = readString(in);
+                String value;
+                synchronized (table) {
+                    value = table.get(key);
+                }
+                out.writeByte(OK);
+                writeString(out, value);
+                break;
+            }
+            case PUT: {
+                String key = readString(in);
+                String value = readString(in);
+                String previous;
+                synchronized (table) {
+                    previous = table.put(key, value);
+                }
+                out.writeByte(OK);
+                writeString(out, previous);
+                break;
+            }
+            case REMOVE: {
+                String key = readString(in);
+                String removed;
+                synchronized (table) {
+                    removed = table.remove(key);
+                }
+                out.writeByte(OK);
+                writeString(out, removed);
+                break;
+            }
+            case SIZE:
+                out.writeByte(OK);
+                out.writeInt(size());
+                break;
+            case CLEAR:
+                synchronized (table) {
+                    table.clear();
+                }
+                out.writeByte(OK);
+                break;
+            case SCAN:
+                scan(readRanges(in), out);
+                break;
+            case DROP:
+                drop(readRanges(in), out);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+    }
+
+    private void scan(int[] ranges, DataOutputStream out) throws IOException {
+        var keys = new ArrayList<String>();
+        var values = new ArrayList<String>();
+        synchronized (table) {
+            table.forEach((key, value) -> {
+                if (inRanges(ringHash(key), ranges)) {
+                    keys.add(key);
+                    values.add(value);
+                }
+            });
+        }
+
+        out.writeByte(OK);
+        out.writeInt(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            writeString(out, keys.get(i));
+            writeString(out, values.get(i));
+        }
+    }
+
+    private void drop(int[] ranges, DataOutputStream out) throws IOException {
+        var keys = new ArrayList<String>();
+        synchronized (table) {
+            table.forEach((key, value) -> {
+                if (inRanges(ringHash(key), ranges)) {
+                    keys.add(key);
+                }
+            });
+            table.removeAll(keys.toArray(new String[0]));
+        }
+
+        out.writeByte(OK);
+        out.writeInt(keys.size());
+    }
+
+    // from and to of every range one after another
+    private static int[] readRanges(DataInputStream in) throws IOException {
+        int rangeCount = in.readInt();
+        if (rangeCount < 0) {
+            throw new IllegalArgumentException("Negative number of ranges");
+        }
+        var ranges = new int[rangeCount * 2];
+        for (int i = 0; i < ranges.length; i++) {
+            ranges[i] = in.readInt();
+        }
+        return ranges;
+    }
+
+    private static boolean inRanges(int position, int[] ranges) {
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (inRange(position, ranges[i], ranges[i + 1])) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
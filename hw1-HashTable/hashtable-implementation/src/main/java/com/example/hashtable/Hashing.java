@@ -0,0 +1,97 @@
+package com.example.hashtable;
+
+import java.security.SecureRandom;
+
+/**
+ * Seeded hash function for tables exposed to attacker-chosen keys.
+ *
+ * It is SipHash-1-3, a keyed pseudorandom function over the UTF-16 code units of a string,
+ * so without the secret per-table seed collisions can be neither precomputed nor reproduced in another table.
+ * The 128-bit SipHash key is expanded from the 64-bit seed.
+ */
+final class Hashing {
+    static final private SecureRandom SEEDS = new SecureRandom();
+
+    static final private long INIT_0 = 0x736F6D6570736575L;
+    static final private long INIT_1 = 0x646F72616E646F6DL;
+    static final private long INIT_2 = 0x6C7967656E657261L;
+    static final private long INIT_3 = 0x7465646279746573L;
+    static final private int FINAL_ROUNDS = 3;
+    // a string always has an even number of bytes, so this length byte marks the null string
+    static final private long NULL_BLOCK = 0xFFL << 56;
+
+    private Hashing() {}
+
+    /**
+     * Returns a new unpredictable seed.
+     */
+    static long newSeed() {
+        return SEEDS.nextLong();
+    }
+
+    /**
+     * Hashes the characters of the specified string with the seed as the key.
+     * The null string has a hash too.
+     */
+    static int seededHash(String s, long seed) {
+        long h = sipHash(s, seed, finish(seed ^ 0x9E3779B97F4A7C15L));
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * SipHash-1-3 of the little-endian UTF-16 bytes of the string, four characters to a 64-bit word.
+     */
+    private static long sipHash(String s, long k0, long k1) {
+        long v0 = k0 ^ INIT_0;
+        long v1 = k1 ^ INIT_1;
+        long v2 = k0 ^ INIT_2;
+        long v3 = k1 ^ INIT_3;
+
+        int length = s == null ? 0 : s.length();
+        int fullBlocks = length / 4;
+        // the last block keeps the remaining characters and the length in bytes modulo 256 in its top byte
+        for (int b = 0; b <= fullBlocks; b++) {
+            long m;
+            if (s == null) {
+                m = NULL_BLOCK;
+            } else if (b < fullBlocks) {
+                int i = b * 4;
+                m = s.charAt(i)
+                        | (long) s.charAt(i + 1) << 16
+                        | (long) s.charAt(i + 2) << 32
+                        | (long) s.charAt(i + 3) << 48;
+            } else {
+                m = (long) (length * 2) << 56;
+                for (int i = b * 4, shift = 0; i < length; i++, shift += 16) {
+                    m |= (long) s.charAt(i) << shift;
+                }
+            }
+
+            v3 ^= m;
+            v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+            v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+            v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+            v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+            v0 ^= m;
+        }
+
+        v2 ^= 0xFF;
+        for (int r = 0; r < FINAL_ROUNDS; r++) {
+            v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+            v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+            v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+            v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+        }
+        return v0 ^ v1 ^ v2 ^ v3;
+    }
+
+    // MurmurHash3 finalizer, spreads the seed into the second half of the key
+    private static long finish(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -2,11 +2,12 @@ package com.example.hashtable;
 
 
 import java.util.Objects;
+import java.util.function.BiConsumer;
 
 /**
  * Implements Map interface based on single linked list with String as both key and value types.
  */
-public class ListMap {
+public class ListMap extends Bucket {
 	private ListElement head;
 	private int size;
 
@@ -98,6 +99,30 @@ public class ListMap {
 		return null;
 	}
 
+	@Override
+	boolean contains(String key, HashTableMetrics metrics) {
+		return find(key, metrics) != null;
+	}
+
+	@Override
+	String get(String key, HashTableMetrics metrics) {
+		ListElement element = find(key, metrics);
+		return element != null ? element.value : null;
+	}
+
+	private ListElement find(String key, HashTableMetrics metrics) {
+		int comparisons = 0;
+		for (ListElement p = head; p != null; p = p.next) {
+			comparisons++;
+			if (Objects.equals(p.key, key)) {
+				metrics.recordLookup(comparisons);
+				return p;
+			}
+		}
+		metrics.recordLookup(comparisons);
+		return null;
+	}
+
 	/**
 	 * Stores value by key. Rewrites existing value.
 	 * @return  previous value stored by the specified key,
@@ -105,17 +130,7 @@ public class ListMap {
 	 */
 	public String put(String key, String value) {
 		String oldValue = remove(key);
-		ListElement newHead = new ListElement(key, value, null, null);
-
-		if (head != null) {
-			head.insertBefore(newHead);
-			head = newHead;
-		} else {
-			head = newHead;
-		}
-
-		size++;
-
+		linkFirst(new ListElement(key, value, null, null));
 		return oldValue;
 	}
 
@@ -140,6 +155,7 @@ public class ListMap {
 	 */
 	public void clear() {
 		head = null;
+		size = 0;
 	}
 
 	/**
@@ -147,11 +163,6 @@ public class ListMap {
 	 * @return	the number of mappings stored
 	 */
 	public int size() {
-		int size = 0;
-
-		for (ListElement p = head; p != null; p = p.next) {
-			size++;
-		}
 		return size;
 	}
 
@@ -165,10 +176,49 @@ public class ListMap {
 		if (head == null) {
 			return null;
 		}
+		size--;
 		eraseListElement(head);
 		return new Entry(headOld.key, headOld.value);
 	}
 
+	@Override
+	void forEach(BiConsumer<String, String> action) {
+		for (ListElement p = head; p != null; p = p.next) {
+			action.accept(p.key, p.value);
+		}
+	}
+
+	@Override
+	String firstKey() {
+		return head.key;
+	}
+
+	/*
+	 * Another ListMap takes the list element itself, so nothing is allocated.
+	 */
+	@Override
+	void moveFirstTo(Bucket target) {
+		ListElement element = head;
+		size--;
+		eraseListElement(element);
+
+		if (target instanceof ListMap) {
+			((ListMap) target).linkFirst(element);
+		} else {
+			target.put(element.key, element.value);
+		}
+	}
+
+	private void linkFirst(ListElement element) {
+		element.prev = null;
+		element.next = null;
+		if (head != null) {
+			head.insertBefore(element);
+		}
+		head = element;
+		size++;
+	}
+
 	private void eraseListElement(ListElement element) {
 		if (head == element) {
 			head = element.next;
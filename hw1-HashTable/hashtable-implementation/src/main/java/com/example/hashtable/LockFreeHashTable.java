@@ -0,0 +1,320 @@
+package com.example.hashtable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Non-blocking thread-safe hash table with String as both key and value type.
+ *
+ * Every bucket holds an immutable chain of nodes; a modification builds a new chain
+ * and publishes it with a single compare-and-set of the bucket head.
+ *
+ * Resizing is cooperative. The old bucket array is split into chunks that threads claim one by one;
+ * a moved bucket is replaced by a forwarding marker. Any writer that meets a marker helps to move
+ * the remaining chunks and then retries in the new array, so writers never wait for a single rehashing thread.
+ * Readers simply follow markers.
+ *
+ * Like {@link HashTable} accepts <code>null</code> both as a key and as a value.
+ * {@link #clear()} is not atomic with respect to modifications running at the same time.
+ */
+public class LockFreeHashTable {
+
+    static final private int INIT_CAPACITY = 16;
+    static final private int CAPACITY_MULTIPLIER = 2;
+    // the table grows when it is more than MAX_LOAD_NUMERATOR / MAX_LOAD_DENOMINATOR full
+    static final private int MAX_LOAD_NUMERATOR = 3;
+    static final private int MAX_LOAD_DENOMINATOR = 4;
+    // buckets claimed by a resizing thread at once
+    static final private int TRANSFER_CHUNK = 16;
+
+    static final private VarHandle BUCKETS = MethodHandles.arrayElementVarHandle(Node[].class);
+    static final private VarHandle ROOT;
+    static final private VarHandle NEXT;
+
+    static {
+        try {
+            var lookup = MethodHandles.lookup();
+            ROOT = lookup.findVarHandle(LockFreeHashTable.class, "root", Table.class);
+            NEXT = lookup.findVarHandle(Table.class, "next", Table.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    static private class Node {
+        private final int hash;
+        private final String key;
+        private final String value;
+        private final Node next;
+
+        private Node(int hash, String key, String value, Node next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Marks a bucket whose content has been moved to the next table.
+     */
+    static private class Forward extends Node {
+        private final Table target;
+
+        private Forward(Table target) {
+            super(0, null, null, null);
+            this.target = target;
+        }
+    }
+
+    static private class Table {
+        private final Node[] buckets;
+        // shared by all tables of one generation, so the count survives resizes
+        private final LongAdder entriesCount;
+        private volatile Table next;
+        // start of the next chunk to claim during a resize
+        private final AtomicInteger transferIndex = new AtomicInteger();
+        private final AtomicInteger transferredCount = new AtomicInteger();
+
+        private Table(int capacity, LongAdder entriesCount) {
+            buckets = new Node[capacity];
+            this.entriesCount = entriesCount;
+        }
+
+        private Node bucket(int index) {
+            return (Node) BUCKETS.getVolatile(buckets, index);
+        }
+
+        private boolean casBucket(int index, Node expected, Node value) {
+            return BUCKETS.compareAndSet(buckets, index, expected, value);
+        }
+    }
+
+    private volatile Table root;
+
+    /**
+     * Constructs an empty LockFreeHashTable
+     */
+    public LockFreeHashTable() {
+        root = new Table(INIT_CAPACITY, new LongAdder());
+    }
+
+    /**
+     * Checks if the specified key is present among stored keys.
+     * @return     <code>true</code> if this table contains such key;
+     *             <code>false</code> otherwise.
+     */
+    public boolean contains(String key) {
+        return find(key) != null;
+    }
+
+    /**
+     * Returns value mapped to the specified key or null if this table contains no mapping for the key.
+     * @return  the value, mapped to the key if it is present;
+     * 			<code>null</code> otherwise
+     */
+    public String get(String key) {
+        Node node = find(key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Stores value by key. Rewrites existing value.
+     * @return  the previous value stored by this key,
+     * 			or <code>null</code> if there were no previous value
+     */
+    public String put(String key, String value) {
+        int hash = hash(key);
+        Table table = root;
+
+        while (true) {
+            int index = hash & (table.buckets.length - 1);
+            Node head = table.bucket(index);
+            if (head instanceof Forward) {
+                helpTransfer(table);
+                table = ((Forward) head).target;
+                continue;
+            }
+
+            Node existing = findInChain(head, hash, key);
+            Node headNew;
+            if (existing == null) {
+                headNew = new Node(hash, key, value, head);
+            } else {
+                headNew = new Node(hash, key, value, withoutNode(head, existing));
+            }
+
+            if (table.casBucket(index, head, headNew)) {
+                if (existing != null) {
+                    return existing.value;
+                }
+                table.entriesCount.increment();
+                // summing the counter is not free; until some bucket collides the load is at most one anyway
+                if (head != null) {
+                    tryGrow();
+                }
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Removes value stored by specified key
+     * @return 	the value stored by this key,
+     * 			or <code>null</code> if there were no previous value
+     */
+    public String remove(String key) {
+        int hash = hash(key);
+        Table table = root;
+
+        while (true) {
+            int index = hash & (table.buckets.length - 1);
+            Node head = table.bucket(index);
+            if (head instanceof Forward) {
+                helpTransfer(table);
+                table = ((Forward) head).target;
+                continue;
+            }
+
+            Node existing = findInChain(head, hash, key);
+            if (existing == null) {
+                return null;
+            }
+            if (table.casBucket(index, head, withoutNode(head, existing))) {
+                table.entriesCount.decrement();
+                return existing.value;
+            }
+        }
+    }
+
+    /**
+     * Removes all entries from the table
+     */
+    public void clear() {
+        root = new Table(INIT_CAPACITY, new LongAdder());
+    }
+
+    /**
+     * Returns the number of mappings stored.
+     * Is exact only if no modifications run at the same time.
+     * @return	the number of mapping stored
+     */
+    public int size() {
+        return (int) root.entriesCount.sum();
+    }
+
+    private Node find(String key) {
+        int hash = hash(key);
+        Table table = root;
+
+        while (true) {
+            Node head = table.bucket(hash & (table.buckets.length - 1));
+            if (head instanceof Forward) {
+                table = ((Forward) head).target;
+                continue;
+            }
+            return findInChain(head, hash, key);
+        }
+    }
+
+    private void tryGrow() {
+        Table table = root;
+        long size = table.entriesCount.sum();
+        if (size * MAX_LOAD_DENOMINATOR <= (long) table.buckets.length * MAX_LOAD_NUMERATOR || table.next != null) {
+            return;
+        }
+
+        var next = new Table(table.buckets.length * CAPACITY_MULTIPLIER, table.entriesCount);
+        // only one thread installs the target, the rest join it in helpTransfer on meeting a forwarding marker
+        if (NEXT.compareAndSet(table, null, next)) {
+            helpTransfer(table);
+        }
+    }
+
+    /*
+     * Moves chunks of buckets of the specified table to its next table until there are no unclaimed chunks left.
+     * Every chunk is moved by exactly one thread, so the next table's buckets for it are written by that thread only
+     * until the old bucket becomes a forwarding marker.
+     */
+    private void helpTransfer(Table table) {
+        Table next = table.next;
+        int capacity = table.buckets.length;
+
+        while (true) {
+            int start = table.transferIndex.getAndAdd(TRANSFER_CHUNK);
+            if (start >= capacity) {
+                return;
+            }
+
+            int end = Math.min(capacity, start + TRANSFER_CHUNK);
+            for (int i = start; i < end; i++) {
+                transferBucket(table, next, i);
+            }
+
+            if (table.transferredCount.addAndGet(end - start) == capacity) {
+                // the last chunk is done, new operations may start at the next table
+                ROOT.compareAndSet(this, table, next);
+            }
+        }
+    }
+
+    private void transferBucket(Table table, Table next, int index) {
+        int capacity = table.buckets.length;
+        var forward = new Forward(next);
+
+        while (true) {
+            Node head = table.bucket(index);
+            Node low = null;
+            Node high = null;
+            for (Node p = head; p != null; p = p.next) {
+                if ((p.hash & capacity) == 0) {
+                    low = new Node(p.hash, p.key, p.value, low);
+                } else {
+                    high = new Node(p.hash, p.key, p.value, high);
+                }
+            }
+
+            BUCKETS.setVolatile(next.buckets, index, low);
+            BUCKETS.setVolatile(next.buckets, index + capacity, high);
+            if (table.casBucket(index, head, forward)) {
+                return;
+            }
+        }
+    }
+
+    private static Node findInChain(Node head, int hash, String key) {
+        for (Node p = head; p != null; p = p.next) {
+            if (p.hash == hash && Objects.equals(p.key, key)) {
+                return p;
+            }
+        }
+        return null;
+    }
+
+    // copies the part of the chain before the node, the rest is shared
+    private static Node withoutNode(Node head, Node node) {
+        int before = 0;
+        for (Node p = head; p != node; p = p.next) {
+            before++;
+        }
+        var prefix = new Node[before];
+        Node p = head;
+        for (int i = 0; i < before; i++, p = p.next) {
+            prefix[i] = p;
+        }
+
+        Node result = node.next;
+        for (int i = before - 1; i >= 0; i--) {
+            result = new Node(prefix[i].hash, prefix[i].key, prefix[i].value, result);
+        }
+        return result;
+    }
+
+    private static int hash(String key) {
+        int h = key == null ? 0 : key.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
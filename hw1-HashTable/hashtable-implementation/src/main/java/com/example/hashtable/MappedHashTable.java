@@ -0,0 +1,484 @@
+package com.example.hashtable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+
+/**
+ * File-backed hash table with String as both key and value type.
+ *
+ * The table lives in memory-mapped files, so opening an existing table reads nothing up front:
+ * pages are loaded by the operating system when they are touched.
+ *
+ * The index file <code>path</code> holds a header and a linear probing table of slots.
+ * Entries are appended to <code>path.data</code>, overwritten and removed entries are not reclaimed.
+ * Growing the index rewrites it in place, so it is protected by a redo log <code>path.redo</code>:
+ * the future content of the index is logged and forced first, and a complete log found on opening is replayed.
+ *
+ * Changes reach the disk when the operating system writes the pages back or on {@link #flush()}.
+ * I/O errors are thrown as {@link UncheckedIOException}.
+ * Like {@link HashTable} accepts <code>null</code> both as a key and as a value.
+ */
+public class MappedHashTable implements Closeable {
+
+    static final private long MAGIC = 0x48617368_4D617031L;
+    static final private int VERSION = 1;
+
+    static final private int INIT_CAPACITY = 1024;
+    // the index grows when it is more than MAX_LOAD_NUMERATOR / MAX_LOAD_DENOMINATOR full
+    static final private int MAX_LOAD_NUMERATOR = 3;
+    static final private int MAX_LOAD_DENOMINATOR = 4;
+
+    /*
+     * Index file header:
+     *   long -- magic
+     *   int  -- version
+     *   int  -- capacity
+     *   int  -- entries count
+     *   long -- end of the used part of the data file
+     * followed by slots: int hash (0 for an empty slot), long offset of the record in the data file
+     */
+    static final private int CAPACITY_OFFSET = 12;
+    static final private int COUNT_OFFSET = 16;
+    static final private int DATA_END_OFFSET = 20;
+    static final private int HEADER_SIZE = 32;
+    static final private int SLOT_SIZE = 12;
+
+    /*
+     * Data file records:
+     *   int -- key length in bytes, -1 for the null key
+     *   int -- value length in bytes, -1 for the null value
+     *   UTF-8 bytes of the key followed by UTF-8 bytes of the value
+     * A record never crosses a segment border.
+     */
+    static final private int SEGMENT_SIZE = 1 << 26;
+    static final private int RECORD_HEADER_SIZE = 8;
+    static final private int NULL_LENGTH = -1;
+
+    // capacity, entries count and end of data in front of the entries of a redo log
+    static final private int REDO_HEADER_SIZE = 16;
+
+    private final Path indexPath;
+    private final Path redoPath;
+    private final FileChannel indexChannel;
+    private final FileChannel dataChannel;
+    private MappedByteBuffer index;
+    private int mask;
+    private final ArrayList<MappedByteBuffer> segments = new ArrayList<>();
+
+    /**
+     * Opens the table stored at the specified path or creates an empty one if there is no such file.
+     * @throws IOException if the files can not be opened or do not contain a table
+     */
+    public MappedHashTable(Path path) throws IOException {
+        indexPath = path;
+        redoPath = sibling(path, ".redo");
+        boolean exists = Files.exists(path);
+
+        indexChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        dataChannel = FileChannel.open(sibling(path, ".data"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (exists) {
+                // a complete redo log replaces whatever the index contains, even a half-written header
+                if (!replayRedoLog()) {
+                    if (indexChannel.size() == 0) {
+                        // an empty file, such as a fresh temporary one, holds an empty table
+                        resetIndex(INIT_CAPACITY);
+                    } else {
+                        mapIndex(readCapacity());
+                        if (index.getLong(0) != MAGIC || index.getInt(8) != VERSION) {
+                            throw new IOException("Not a hash table file: " + path);
+                        }
+                    }
+                }
+            } else {
+                Files.deleteIfExists(redoPath);
+                resetIndex(INIT_CAPACITY);
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Checks if the specified key is present among stored keys.
+     * @return     <code>true</code> if this table contains such key;
+     *             <code>false</code> otherwise.
+     */
+    public boolean contains(String key) {
+        return findSlot(encode(key), hash(key)) >= 0;
+    }
+
+    /**
+     * Returns value mapped to the specified key or null if this table contains no mapping for the key.
+     * @return  the value, mapped to the key if it is present;
+     * 			<code>null</code> otherwise
+     */
+    public String get(String key) {
+        int slot = findSlot(encode(key), hash(key));
+        return slot < 0 ? null : readValue(slotAddress(slot));
+    }
+
+    /**
+     * Stores value by key. Rewrites existing value.
+     * @return  the previous value stored by this key,
+     * 			or <code>null</code> if there were no previous value
+     */
+    public String put(String key, String value) {
+        byte[] keyBytes = encode(key);
+        int hash = hash(key);
+
+        int slot = findSlot(keyBytes, hash);
+        if (slot >= 0) {
+            String oldValue = readValue(slotAddress(slot));
+            // the record is complete before the slot points to it
+            index.putLong(slotPosition(slot) + 4, appendRecord(keyBytes, encode(value)));
+            return oldValue;
+        }
+
+        if ((size() + 1) * MAX_LOAD_DENOMINATOR > (mask + 1) * MAX_LOAD_NUMERATOR) {
+            grow();
+        }
+        insert(hash, appendRecord(keyBytes, encode(value)));
+        index.putInt(COUNT_OFFSET, size() + 1);
+        return null;
+    }
+
+    /**
+     * Removes value stored by specified key
+     * @return 	the value stored by this key,
+     * 			or <code>null</code> if there were no previous value
+     */
+    public String remove(String key) {
+        int slot = findSlot(encode(key), hash(key));
+        if (slot < 0) {
+            return null;
+        }
+        String oldValue = readValue(slotAddress(slot));
+
+        // backward shift deletion for linear probing
+        int hole = slot;
+        for (int i = (slot + 1) & mask; slotHash(i) != 0; i = (i + 1) & mask) {
+            int home = slotHash(i) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                setSlot(hole, slotHash(i), slotAddress(i));
+                hole = i;
+            }
+        }
+        setSlot(hole, 0, 0);
+
+        index.putInt(COUNT_OFFSET, size() - 1);
+        return oldValue;
+    }
+
+    /**
+     * Removes all entries from the table and truncates its files
+     */
+    public void clear() {
+        try {
+            segments.clear();
+            dataChannel.truncate(0);
+            resetIndex(INIT_CAPACITY);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the number of mappings stored.
+     * @return	the number of mapping stored
+     */
+    public int size() {
+        return index.getInt(COUNT_OFFSET);
+    }
+
+    /**
+     * Forces all changes to the disk.
+     */
+    public void flush() {
+        forceSegments();
+        index.force();
+    }
+
+    private void forceSegments() {
+        for (var segment : segments) {
+            if (segment != null) {
+                segment.force();
+            }
+        }
+    }
+
+    /**
+     * Flushes the table and closes its files. The table must not be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (index != null) {
+                flush();
+            }
+        } finally {
+            index = null;
+            segments.clear();
+            try {
+                indexChannel.close();
+            } finally {
+                dataChannel.close();
+            }
+        }
+    }
+
+    private int findSlot(byte[] keyBytes, int hash) {
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            int h = slotHash(i);
+            if (h == 0) {
+                return -1;
+            }
+            if (h == hash && keyEquals(slotAddress(i), keyBytes)) {
+                return i;
+            }
+        }
+    }
+
+    // the key must be absent and there must be a free slot
+    private void insert(int hash, long address) {
+        int i = hash & mask;
+        while (slotHash(i) != 0) {
+            i = (i + 1) & mask;
+        }
+        setSlot(i, hash, address);
+    }
+
+    /*
+     * Redo log:
+     *   int  -- new capacity
+     *   int  -- entries count
+     *   long -- end of the used part of the data file
+     *   for each entry: int hash, long address
+     *   long -- CRC32 of everything above
+     * The data the logged entries point to and then the log itself, with the directory entry of the log,
+     * are forced before the index is touched; the log is deleted after the index is forced.
+     */
+    private void grow() {
+        int capacity = mask + 1;
+        int count = size();
+        var log = ByteBuffer.allocate(REDO_HEADER_SIZE + count * SLOT_SIZE + 8);
+        log.putInt(capacity * 2).putInt(count).putLong(index.getLong(DATA_END_OFFSET));
+        for (int i = 0; i < capacity; i++) {
+            if (slotHash(i) != 0) {
+                log.putInt(slotHash(i)).putLong(slotAddress(i));
+            }
+        }
+        log.putLong(checksum(log.array(), log.position()));
+        log.flip();
+
+        forceSegments();
+        try (var redo = FileChannel.open(redoPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (log.hasRemaining()) {
+                redo.write(log);
+            }
+            redo.force(true);
+            SnapshotFile.forceDirectory(redoPath.toAbsolutePath().getParent());
+
+            applyRedoLog(log.rewind());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // returns false if there is no complete log to replay
+    private boolean replayRedoLog() throws IOException {
+        if (!Files.exists(redoPath)) {
+            return false;
+        }
+
+        var log = ByteBuffer.wrap(Files.readAllBytes(redoPath));
+        if (log.limit() >= REDO_HEADER_SIZE + 8) {
+            int count = log.getInt(4);
+            long length = REDO_HEADER_SIZE + (long) count * SLOT_SIZE;
+            if (count >= 0 && length + 8 == log.limit() && log.getLong((int) length) == checksum(log.array(), (int) length)) {
+                applyRedoLog(log);
+                return true;
+            }
+        }
+        // an incomplete log means the crash happened before the index was touched
+        Files.delete(redoPath);
+        return false;
+    }
+
+    private void applyRedoLog(ByteBuffer log) throws IOException {
+        int capacity = log.getInt();
+        int count = log.getInt();
+        long dataEnd = log.getLong();
+
+        resetIndex(capacity);
+        for (int i = 0; i < count; i++) {
+            insert(log.getInt(), log.getLong());
+        }
+        index.putInt(COUNT_OFFSET, count);
+        index.putLong(DATA_END_OFFSET, dataEnd);
+        index.force();
+
+        Files.delete(redoPath);
+    }
+
+    private int readCapacity() throws IOException {
+        var header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining() && indexChannel.read(header, header.position()) >= 0) {
+            // keep reading
+        }
+        if (header.hasRemaining()) {
+            throw new IOException("Truncated hash table file: " + indexPath);
+        }
+        int capacity = header.getInt(CAPACITY_OFFSET);
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IOException("Corrupted hash table file: " + indexPath);
+        }
+        return capacity;
+    }
+
+    // writes an empty index of the specified capacity, keeping the file size in sync
+    private void resetIndex(int capacity) throws IOException {
+        long size = HEADER_SIZE + (long) capacity * SLOT_SIZE;
+        indexChannel.truncate(0);
+        mapIndex(capacity);
+        index.putLong(0, MAGIC);
+        index.putInt(8, VERSION);
+        index.putInt(CAPACITY_OFFSET, capacity);
+        index.putInt(COUNT_OFFSET, 0);
+        index.putLong(DATA_END_OFFSET, 0);
+        if (indexChannel.size() != size) {
+            throw new IOException("Can not resize hash table file: " + indexPath);
+        }
+    }
+
+    private void mapIndex(int capacity) throws IOException {
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+        mask = capacity - 1;
+    }
+
+    private int slotPosition(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private int slotHash(int slot) {
+        return index.getInt(slotPosition(slot));
+    }
+
+    private long slotAddress(int slot) {
+        return index.getLong(slotPosition(slot) + 4);
+    }
+
+    private void setSlot(int slot, int hash, long address) {
+        // the address goes first, so a slot never points to garbage once its hash is set
+        index.putLong(slotPosition(slot) + 4, address);
+        index.putInt(slotPosition(slot), hash);
+    }
+
+    private boolean keyEquals(long address, byte[] keyBytes) {
+        ByteBuffer segment = segment(address);
+        int offset = (int) (address % SEGMENT_SIZE);
+        int length = segment.getInt(offset);
+        if (keyBytes == null || length == NULL_LENGTH) {
+            return keyBytes == null && length == NULL_LENGTH;
+        }
+        if (length != keyBytes.length) {
+            return false;
+        }
+        offset += RECORD_HEADER_SIZE;
+        for (int i = 0; i < length; i++) {
+            if (segment.get(offset + i) != keyBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String readValue(long address) {
+        ByteBuffer segment = segment(address);
+        int offset = (int) (address % SEGMENT_SIZE);
+        int keyLength = Math.max(segment.getInt(offset), 0);
+        int valueLength = segment.getInt(offset + 4);
+        if (valueLength == NULL_LENGTH) {
+            return null;
+        }
+
+        var bytes = new byte[valueLength];
+        segment.duplicate().position(offset + RECORD_HEADER_SIZE + keyLength).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long appendRecord(byte[] keyBytes, byte[] valueBytes) {
+        int keyLength = keyBytes == null ? 0 : keyBytes.length;
+        int valueLength = valueBytes == null ? 0 : valueBytes.length;
+        long size = RECORD_HEADER_SIZE + (long) keyLength + valueLength;
+        if (size > SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Entry does not fit into " + SEGMENT_SIZE + " bytes");
+        }
+
+        long address = index.getLong(DATA_END_OFFSET);
+        if (address % SEGMENT_SIZE + size > SEGMENT_SIZE) {
+            address = (address / SEGMENT_SIZE + 1) * SEGMENT_SIZE;
+        }
+
+        ByteBuffer segment = segment(address).duplicate();
+        segment.position((int) (address % SEGMENT_SIZE));
+        segment.putInt(keyBytes == null ? NULL_LENGTH : keyLength);
+        segment.putInt(valueBytes == null ? NULL_LENGTH : valueLength);
+        if (keyBytes != null) {
+            segment.put(keyBytes);
+        }
+        if (valueBytes != null) {
+            segment.put(valueBytes);
+        }
+
+        index.putLong(DATA_END_OFFSET, address + size);
+        return address;
+    }
+
+    private MappedByteBuffer segment(long address) {
+        int number = (int) (address / SEGMENT_SIZE);
+        while (segments.size() <= number) {
+            segments.add(null);
+        }
+        if (segments.get(number) == null) {
+            try {
+                segments.set(number, dataChannel.map(FileChannel.MapMode.READ_WRITE, (long) number * SEGMENT_SIZE, SEGMENT_SIZE));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return segments.get(number);
+    }
+
+    private static long checksum(byte[] bytes, int length) {
+        var crc = new CRC32();
+        crc.update(bytes, 0, length);
+        return crc.getValue();
+    }
+
+    private static Path sibling(Path path, String suffix) {
+        return path.resolveSibling(path.getFileName() + suffix);
+    }
+
+    private static byte[] encode(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int hash(String key) {
+        int h = key == null ? 0 : key.hashCode();
+        return (h ^ (h >>> 16)) | Integer.MIN_VALUE;
+    }
+}
@@ -0,0 +1,397 @@
+package com.example.hashtable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * Keeps both the index and the entries outside of the Java heap, in direct ByteBuffers,
+ * so the garbage collector has nothing to scan however many entries are stored.
+ *
+ * The index is a linear probing table of slots, each slot holds a hash and an address of an entry record.
+ * Records are allocated from big slabs in power of two size classes and freed blocks are reused
+ * through per-class free lists. A record is laid out as
+ *   int -- length of the key in bytes, -1 for the null key
+ *   int -- length of the value in bytes, -1 for the null value
+ *   UTF-8 bytes of the key followed by UTF-8 bytes of the value
+ *
+ * Keys are compared as bytes, Strings are created only for returned values.
+ *
+ * The index is split into segments of at most 2^20 slots, so its size is not limited by the int
+ * indexing of a single ByteBuffer. Memory of replaced index segments and released slabs is freed
+ * explicitly, see {@link DirectMemory}.
+ */
+class OffHeapEngine implements Engine {
+
+    static final private int INIT_CAPACITY = 16;
+    // the index grows when it is more than MAX_LOAD_NUMERATOR / MAX_LOAD_DENOMINATOR full
+    static final private int MAX_LOAD_NUMERATOR = 3;
+    static final private int MAX_LOAD_DENOMINATOR = 4;
+    static final private int MAX_CAPACITY = 1 << 30;
+
+    // slot: int hash (0 for an empty slot), long address of the record
+    static final private int SLOT_SIZE = 12;
+    static final private int RECORD_HEADER_SIZE = 8;
+    static final private int NULL_LENGTH = -1;
+    static final private int SEGMENT_SHIFT = 20;
+    static final private int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    static final private int SLAB_SIZE = 1 << 20;
+    static final private int MIN_SIZE_CLASS = 4;
+    static final private int MAX_SIZE_CLASS = 20;
+    static final private long NO_BLOCK = -1;
+
+    private ByteBuffer[] index;
+    private int mask;
+    private int entriesCount;
+
+    // an address is the slab number in the high half and the offset inside the slab in the low half
+    private final ArrayList<ByteBuffer> slabs = new ArrayList<>();
+    private final long[] freeLists = new long[MAX_SIZE_CLASS + 1];
+    // new blocks are cut from this slab starting at bumpOffset
+    private int bumpSlab;
+    private int bumpOffset;
+
+    OffHeapEngine() {
+        index = newIndex(INIT_CAPACITY);
+        mask = INIT_CAPACITY - 1;
+        Arrays.fill(freeLists, NO_BLOCK);
+        bumpOffset = SLAB_SIZE;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return findSlot(encode(key), hash(key)) >= 0;
+    }
+
+    @Override
+    public String get(String key) {
+        int slot = findSlot(encode(key), hash(key));
+        if (slot < 0) {
+            return null;
+        }
+        return readValue(slotAddress(slot));
+    }
+
+    @Override
+    public String put(String key, String value) {
+        byte[] keyBytes = encode(key);
+        byte[] valueBytes = encode(value);
+        int hash = hash(key);
+
+        int slot = findSlot(keyBytes, hash);
+        if (slot >= 0) {
+            long address = slotAddress(slot);
+            String oldValue = readValue(address);
+            free(address);
+            setSlot(slot, hash, writeRecord(keyBytes, valueBytes));
+            return oldValue;
+        }
+
+        if (((long) entriesCount + 1) * MAX_LOAD_DENOMINATOR > (long) (mask + 1) * MAX_LOAD_NUMERATOR) {
+            if (mask + 1 == MAX_CAPACITY) {
+                // linear probing needs an empty slot to stop at
+                if (entriesCount + 1 == MAX_CAPACITY) {
+                    throw new IllegalStateException("Off-heap table is full");
+                }
+            } else {
+                resize((mask + 1) * 2);
+            }
+        }
+        insert(hash, writeRecord(keyBytes, valueBytes));
+        entriesCount++;
+        return null;
+    }
+
+    @Override
+    public String remove(String key) {
+        int slot = findSlot(encode(key), hash(key));
+        if (slot < 0) {
+            return null;
+        }
+        long address = slotAddress(slot);
+        String oldValue = readValue(address);
+        free(address);
+
+        // backward shift deletion for linear probing
+        int hole = slot;
+        for (int i = (slot + 1) & mask; slotHash(i) != 0; i = (i + 1) & mask) {
+            int home = slotHash(i) & mask;
+            // the entry may move to the hole unless its home lies cyclically in (hole, i]
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                setSlot(hole, slotHash(i), slotAddress(i));
+                hole = i;
+            }
+        }
+        setSlot(hole, 0, 0);
+
+        entriesCount--;
+        return oldValue;
+    }
+
+    @Override
+    public void clear() {
+        release();
+        index = newIndex(INIT_CAPACITY);
+        mask = INIT_CAPACITY - 1;
+    }
+
+    /**
+     * Frees all of the native memory at once. The engine is left empty with no index,
+     * so it must be cleared before it is used again.
+     */
+    @Override
+    public void release() {
+        freeIndex(index);
+        index = null;
+        mask = 0;
+        entriesCount = 0;
+
+        for (ByteBuffer slab : slabs) {
+            DirectMemory.free(slab);
+        }
+        slabs.clear();
+        Arrays.fill(freeLists, NO_BLOCK);
+        bumpOffset = SLAB_SIZE;
+    }
+
+    @Override
+    public int size() {
+        return entriesCount;
+    }
+
+    @Override
+    public void reserve(int additional) {
+        int capacity = mask + 1;
+        while (((long) entriesCount + additional) * MAX_LOAD_DENOMINATOR > (long) capacity * MAX_LOAD_NUMERATOR
+                && capacity < MAX_CAPACITY) {
+            capacity *= 2;
+        }
+        if (capacity != mask + 1) {
+            resize(capacity);
+        }
+    }
+
+    @Override
+    public int slotCount() {
+        return mask + 1;
+    }
+
+    @Override
+    public void forEachInSlots(int from, int to, BiConsumer<String, String> action) {
+        for (int i = from; i < to; i++) {
+            if (slotHash(i) != 0) {
+                long address = slotAddress(i);
+                action.accept(readKey(address), readValue(address));
+            }
+        }
+    }
+
+    private int findSlot(byte[] keyBytes, int hash) {
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            int h = slotHash(i);
+            if (h == 0) {
+                return -1;
+            }
+            if (h == hash && keyEquals(slotAddress(i), keyBytes)) {
+                return i;
+            }
+        }
+    }
+
+    // the key must be absent and there must be a free slot
+    private void insert(int hash, long address) {
+        int i = hash & mask;
+        while (slotHash(i) != 0) {
+            i = (i + 1) & mask;
+        }
+        setSlot(i, hash, address);
+    }
+
+    private void resize(int capacity) {
+        ByteBuffer[] indexOld = index;
+        int capacityOld = mask + 1;
+
+        index = newIndex(capacity);
+        mask = capacity - 1;
+        for (int i = 0; i < capacityOld; i++) {
+            ByteBuffer segment = indexOld[i >>> SEGMENT_SHIFT];
+            int hash = segment.getInt(slotOffset(i));
+            if (hash != 0) {
+                // records stay where they are, only the index is rebuilt
+                insert(hash, segment.getLong(slotOffset(i) + 4));
+            }
+        }
+        freeIndex(indexOld);
+    }
+
+    private static ByteBuffer[] newIndex(int capacity) {
+        int segmentSlots = Math.min(capacity, 1 << SEGMENT_SHIFT);
+        var segments = new ByteBuffer[capacity / segmentSlots];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = ByteBuffer.allocateDirect(segmentSlots * SLOT_SIZE);
+        }
+        return segments;
+    }
+
+    private static void freeIndex(ByteBuffer[] index) {
+        if (index != null) {
+            for (ByteBuffer segment : index) {
+                DirectMemory.free(segment);
+            }
+        }
+    }
+
+    private int slotHash(int slot) {
+        return index[slot >>> SEGMENT_SHIFT].getInt(slotOffset(slot));
+    }
+
+    private long slotAddress(int slot) {
+        return index[slot >>> SEGMENT_SHIFT].getLong(slotOffset(slot) + 4);
+    }
+
+    private void setSlot(int slot, int hash, long address) {
+        ByteBuffer segment = index[slot >>> SEGMENT_SHIFT];
+        segment.putInt(slotOffset(slot), hash);
+        segment.putLong(slotOffset(slot) + 4, address);
+    }
+
+    private static int slotOffset(int slot) {
+        return (slot & SEGMENT_MASK) * SLOT_SIZE;
+    }
+
+    private boolean keyEquals(long address, byte[] keyBytes) {
+        ByteBuffer slab = slab(address);
+        int offset = offset(address);
+        int length = slab.getInt(offset);
+        if (keyBytes == null || length == NULL_LENGTH) {
+            return keyBytes == null && length == NULL_LENGTH;
+        }
+        if (length != keyBytes.length) {
+            return false;
+        }
+        offset += RECORD_HEADER_SIZE;
+        for (int i = 0; i < length; i++) {
+            if (slab.get(offset + i) != keyBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String readKey(long address) {
+        ByteBuffer slab = slab(address);
+        int offset = offset(address);
+        int keyLength = slab.getInt(offset);
+        if (keyLength == NULL_LENGTH) {
+            return null;
+        }
+
+        var bytes = new byte[keyLength];
+        slab.duplicate().position(offset + RECORD_HEADER_SIZE).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private String readValue(long address) {
+        ByteBuffer slab = slab(address);
+        int offset = offset(address);
+        int keyLength = Math.max(slab.getInt(offset), 0);
+        int valueLength = slab.getInt(offset + 4);
+        if (valueLength == NULL_LENGTH) {
+            return null;
+        }
+
+        var bytes = new byte[valueLength];
+        slab.duplicate().position(offset + RECORD_HEADER_SIZE + keyLength).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long writeRecord(byte[] keyBytes, byte[] valueBytes) {
+        int keyLength = keyBytes == null ? 0 : keyBytes.length;
+        int valueLength = valueBytes == null ? 0 : valueBytes.length;
+        long address = allocate(RECORD_HEADER_SIZE + keyLength + valueLength);
+
+        ByteBuffer slab = slab(address).duplicate();
+        slab.position(offset(address));
+        slab.putInt(keyBytes == null ? NULL_LENGTH : keyLength);
+        slab.putInt(valueBytes == null ? NULL_LENGTH : valueLength);
+        if (keyBytes != null) {
+            slab.put(keyBytes);
+        }
+        if (valueBytes != null) {
+            slab.put(valueBytes);
+        }
+        return address;
+    }
+
+    /*
+     * Blocks of a size class take 2^class bytes. A free block keeps the address of the next free block
+     * of its class at offset 4. Records bigger than a slab get a dedicated slab.
+     */
+    private long allocate(int size) {
+        int sizeClass = sizeClass(size);
+        if (sizeClass > MAX_SIZE_CLASS) {
+            slabs.add(ByteBuffer.allocateDirect(size));
+            return address(slabs.size() - 1, 0);
+        }
+
+        long block = freeLists[sizeClass];
+        if (block != NO_BLOCK) {
+            freeLists[sizeClass] = slab(block).getLong(offset(block) + 4);
+            return block;
+        }
+
+        int blockSize = 1 << sizeClass;
+        if (bumpOffset + blockSize > SLAB_SIZE) {
+            slabs.add(ByteBuffer.allocateDirect(SLAB_SIZE));
+            bumpSlab = slabs.size() - 1;
+            bumpOffset = 0;
+        }
+        long address = address(bumpSlab, bumpOffset);
+        bumpOffset += blockSize;
+        return address;
+    }
+
+    private void free(long address) {
+        ByteBuffer slab = slab(address);
+        int offset = offset(address);
+        int keyLength = Math.max(slab.getInt(offset), 0);
+        int valueLength = Math.max(slab.getInt(offset + 4), 0);
+        int sizeClass = sizeClass(RECORD_HEADER_SIZE + keyLength + valueLength);
+
+        if (sizeClass > MAX_SIZE_CLASS) {
+            // a dedicated slab is given back right away
+            DirectMemory.free(slabs.set((int) (address >>> 32), null));
+            return;
+        }
+        slab.putLong(offset + 4, freeLists[sizeClass]);
+        freeLists[sizeClass] = address;
+    }
+
+    private ByteBuffer slab(long address) {
+        return slabs.get((int) (address >>> 32));
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+
+    private static long address(int slab, int offset) {
+        return ((long) slab << 32) | offset;
+    }
+
+    private static int sizeClass(int size) {
+        return Math.max(MIN_SIZE_CLASS, 32 - Integer.numberOfLeadingZeros(size - 1));
+    }
+
+    private static byte[] encode(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int hash(String key) {
+        int h = key == null ? 0 : key.hashCode();
+        return (h ^ (h >>> 16)) | Integer.MIN_VALUE;
+    }
+}
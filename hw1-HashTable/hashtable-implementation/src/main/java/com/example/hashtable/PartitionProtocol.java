@@ -0,0 +1,128 @@
+package com.example.hashtable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary protocol between {@link PartitionedHashTable} and {@link HashTableServer}. All numbers are big-endian.
+ *
+ * A request is a one byte operation code followed by its arguments, a response is a status byte
+ * followed by the result or, for {@link #ERROR}, by a message. Responses come in the order of requests,
+ * so a client may send many requests before reading any response.
+ *
+ *   CONTAINS key        -- boolean
+ *   GET key             -- string
+ *   PUT key value       -- string, the previous value
+ *   REMOVE key          -- string, the removed value
+ *   SIZE                -- int
+ *   CLEAR               -- nothing
+ *   SCAN ranges         -- int count followed by count key-value pairs:
+ *                          all entries whose ring position is in one of the ranges
+ *   DROP ranges         -- int, the number of entries removed: all entries in the ranges
+ *
+ * Ranges are an int count n followed by n pairs of ints from, to; a pair stands for the ring range (from, to].
+ * A string is an int length in bytes, -1 for null, followed by UTF-8 bytes.
+ * Ring positions of keys are {@link #ringHash(String)}, the same in every process.
+ */
+final class PartitionProtocol {
+    static final byte CONTAINS = 1;
+    static final byte GET = 2;
+    static final byte PUT = 3;
+    static final byte REMOVE = 4;
+    static final byte SIZE = 5;
+    static final byte CLEAR = 6;
+    static final byte SCAN = 7;
+    static final byte DROP = 8;
+
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+
+    // fixed, so that clients and servers in different processes agree on positions
+    static final private long RING_SEED = 0x5DEECE66DL;
+    static final private int NULL_LENGTH = -1;
+
+    private PartitionProtocol() {}
+
+    static int ringHash(String s) {
+        return Hashing.seededHash(s, RING_SEED);
+    }
+
+    /**
+     * Checks if the position is in the ring range (from, to], which wraps around the ends of int.
+     * A range with equal ends is the whole ring.
+     */
+    static boolean inRange(int position, int from, int to) {
+        if (from < to) {
+            return from < position && position <= to;
+        }
+        return from == to || position > from || position <= to;
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Number of bytes <code>writeString</code> writes for <code>s</code>, computed without encoding it.
+     */
+    static long stringSize(String s) {
+        if (s == null) {
+            return Integer.BYTES;
+        }
+        long size = Integer.BYTES;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                size += 1;
+            } else if (c < 0x800) {
+                size += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                size += 4;
+                i++;
+            } else {
+                // a lone surrogate is encoded as the one byte '?'
+                size += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+        return size;
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        if (length < 0) {
+            throw new IOException("Malformed string length " + length);
+        }
+        var bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a status byte and throws if it reports an error.
+     * @throws IllegalStateException with the message of the server if the request failed
+     */
+    static void readStatus(DataInputStream in) throws IOException {
+        int status = in.read();
+        if (status < 0) {
+            throw new EOFException("Connection closed by the server");
+        }
+        if (status == ERROR) {
+            throw new IllegalStateException(readString(in));
+        }
+        if (status != OK) {
+            throw new IOException("Malformed response status " + status);
+        }
+    }
+}
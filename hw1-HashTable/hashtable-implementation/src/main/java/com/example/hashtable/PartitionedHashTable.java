@@ -0,0 +1,495 @@
+package com.example.hashtable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.example.hashtable.PartitionProtocol.*;
+
+/**
+ * Hash table with String as both key and value type spread over several {@link HashTableServer}s.
+ *
+ * Keys are placed on a consistent-hash ring: every server owns {@link #VIRTUAL_NODES} points of the ring
+ * and a key belongs to the server of the first point at or after the key's position.
+ * Adding a server moves to it only the ring ranges right before its points, removing one moves only
+ * its own ranges to the servers following them; entries of other ranges stay where they are.
+ * Entries are copied to the new owner first and removed from the old one afterwards.
+ *
+ * The ring lives in this client, so membership must be changed through one client at a time.
+ * Batch operations are pipelined: requests for all servers are sent before responses are read.
+ * After an I/O error the connections are dropped, since the failed exchange may have stopped
+ * in the middle of a message, and the next operation connects again.
+ *
+ * Not thread-safe. I/O errors of data operations are thrown as {@link UncheckedIOException}.
+ * Like {@link HashTable} accepts <code>null</code> both as a key and as a value.
+ */
+public class PartitionedHashTable implements Closeable {
+
+    static final private int VIRTUAL_NODES = 64;
+    /*
+     * Bytes of requests sent before reading their responses. A server blocked on sending responses
+     * stops reading requests, so the window must fit into the socket buffers whatever the size of the responses.
+     * A request that would overflow a non-empty window waits for the next one, so a request longer
+     * than the window is sent alone.
+     */
+    static final private int PIPELINE_WINDOW_BYTES = 32 * 1024;
+
+    static final private class Connection implements Closeable {
+        private final InetSocketAddress address;
+        // null while disconnected
+        private Socket socket;
+        private DataInputStream in;
+        private DataOutputStream out;
+
+        private Connection(InetSocketAddress address) throws IOException {
+            this.address = address;
+            connect();
+        }
+
+        private void connect() throws IOException {
+            socket = new Socket(address.getAddress(), address.getPort());
+            socket.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        private void disconnect() {
+            try {
+                close();
+            } catch (IOException e) {
+                // the connection is dropped anyway
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (socket != null) {
+                var closing = socket;
+                socket = null;
+                in = null;
+                out = null;
+                closing.close();
+            }
+        }
+    }
+
+    // ring position of a virtual node to its server
+    private TreeMap<Integer, Connection> ring = new TreeMap<>();
+    private final Map<InetSocketAddress, Connection> nodes = new LinkedHashMap<>();
+
+    /**
+     * Constructs a table without servers. Add at least one with {@link #addNode(InetSocketAddress)}.
+     */
+    public PartitionedHashTable() {}
+
+    /**
+     * Connects to the server and moves to it the entries of the ring ranges it now owns.
+     * @throws IllegalArgumentException if the server is already a node of this table
+     * @throws IOException if the server can not be reached or moving entries fails
+     */
+    public void addNode(InetSocketAddress address) throws IOException {
+        if (nodes.containsKey(address)) {
+            throw new IllegalArgumentException("Already a node: " + address);
+        }
+        var node = new Connection(address);
+        var ringNew = new TreeMap<>(ring);
+        for (int point : points(address)) {
+            ringNew.putIfAbsent(point, node);
+        }
+
+        // for every new point, the range from the previous point up to it belonged to the owner of the point
+        var moving = new HashMap<Connection, List<Integer>>();
+        if (!ring.isEmpty()) {
+            for (var point : ringNew.entrySet()) {
+                if (point.getValue() != node) {
+                    continue;
+                }
+                var previous = ringNew.lowerKey(point.getKey());
+                var from = previous != null ? previous : ringNew.lastKey();
+                var owner = ownerIn(ring, point.getKey());
+                var ranges = moving.computeIfAbsent(owner, key -> new ArrayList<>());
+                ranges.add(from);
+                ranges.add(point.getKey());
+            }
+        }
+
+        try {
+            for (var entry : moving.entrySet()) {
+                move(entry.getKey(), toArray(entry.getValue()), node);
+            }
+        } catch (IOException e) {
+            node.close();
+            disconnect(e);
+            throw e;
+        } catch (RuntimeException e) {
+            node.close();
+            throw e;
+        }
+        nodes.put(address, node);
+        ring = ringNew;
+    }
+
+    /**
+     * Moves all entries of the server to the remaining ones and disconnects from it. The server keeps running.
+     * @throws IllegalArgumentException if the server is not a node of this table
+     * @throws IllegalStateException if it is the last node, its entries would have nowhere to go
+     * @throws IOException if moving entries fails
+     */
+    public void removeNode(InetSocketAddress address) throws IOException {
+        var node = nodes.get(address);
+        if (node == null) {
+            throw new IllegalArgumentException("Not a node: " + address);
+        }
+        if (nodes.size() == 1) {
+            throw new IllegalStateException("Can not remove the last node");
+        }
+
+        var ringNew = new TreeMap<>(ring);
+        ringNew.values().removeIf(owner -> owner == node);
+
+        // a range with equal ends is the whole ring
+        int[] everything = {0, 0};
+        try {
+            request(node, SCAN).writeRanges(everything);
+            node.out.flush();
+            var entries = readEntries(node);
+            putAll(ringNew, entries.keys.toArray(new String[0]), entries.values.toArray(new String[0]));
+            request(node, DROP).writeRanges(everything);
+            node.out.flush();
+            readStatus(node.in);
+            node.in.readInt();
+        } catch (IOException e) {
+            disconnect(e);
+            throw e;
+        }
+
+        ring = ringNew;
+        nodes.remove(address);
+        node.close();
+    }
+
+    /**
+     * Checks if the specified key is present among stored keys.
+     * @return     <code>true</code> if this table contains such key;
+     *             <code>false</code> otherwise.
+     */
+    public boolean contains(String key) {
+        try {
+            var node = owner(key);
+            request(node, CONTAINS).writeString(key);
+            node.out.flush();
+            readStatus(node.in);
+            return node.in.readBoolean();
+        } catch (IOException e) {
+            throw disconnect(e);
+        }
+    }
+
+    /**
+     * Returns value mapped to the specified key or null if this table contains no mapping for the key.
+     * @return  the value, mapped to the key if it is present;
+     * 			<code>null</code> otherwise
+     */
+    public String get(String key) {
+        return single(GET, key, null, false);
+    }
+
+    /**
+     * Stores value by key. Rewrites existing value.
+     * @return  the previous value stored by this key,
+     * 			or <code>null</code> if there were no previous value
+     */
+    public String put(String key, String value) {
+        return single(PUT, key, value, true);
+    }
+
+    /**
+     * Removes value stored by specified key
+     * @return 	the value stored by this key,
+     * 			or <code>null</code> if there were no previous value
+     */
+    public String remove(String key) {
+        return single(REMOVE, key, null, false);
+    }
+
+    /**
+     * Returns values mapped to each of the specified keys. Requests are pipelined.
+     * @return  an array with the value mapped to <code>keys[i]</code> or <code>null</code> at index <code>i</code>
+     * @throws NullPointerException if keys is null
+     */
+    public String[] getAll(String[] keys) {
+        try {
+            return batch(ring, GET, keys, null);
+        } catch (IOException e) {
+            throw disconnect(e);
+        }
+    }
+
+    /**
+     * Stores each of <code>values[i]</code> by <code>keys[i]</code>. Requests are pipelined.
+     * If a key repeats, the later value wins.
+     * @return  an array with the value previously stored by <code>keys[i]</code> or <code>null</code> at index <code>i</code>
+     * @throws IllegalArgumentException if arrays have different lengths
+     * @throws NullPointerException if any of arrays is null
+     */
+    public String[] putAll(String[] keys, String[] values) throws IllegalArgumentException {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException();
+        }
+        try {
+            return putAll(ring, keys, values);
+        } catch (IOException e) {
+            throw disconnect(e);
+        }
+    }
+
+    /**
+     * Removes values stored by each of the specified keys. Requests are pipelined.
+     * @return  an array with the value removed by <code>keys[i]</code> or <code>null</code> at index <code>i</code>
+     * @throws NullPointerException if keys is null
+     */
+    public String[] removeAll(String[] keys) {
+        try {
+            return batch(ring, REMOVE, keys, null);
+        } catch (IOException e) {
+            throw disconnect(e);
+        }
+    }
+
+    /**
+     * Removes all entries from all nodes.
+     */
+    public void clear() {
+        try {
+            for (var node : nodes.values()) {
+                request(node, CLEAR);
+                node.out.flush();
+            }
+            for (var node : nodes.values()) {
+                readStatus(node.in);
+            }
+        } catch (IOException e) {
+            throw disconnect(e);
+        }
+    }
+
+    /**
+     * Returns the number of mappings stored on all nodes.
+     * @return	the number of mapping stored
+     */
+    public int size() {
+        try {
+            for (var node : nodes.values()) {
+                request(node, SIZE);
+                node.out.flush();
+            }
+            int size = 0;
+            for (var node : nodes.values()) {
+                readStatus(node.in);
+                size += node.in.readInt();
+            }
+            return size;
+        } catch (IOException e) {
+            throw disconnect(e);
+        }
+    }
+
+    /**
+     * Disconnects from all nodes. The servers and their entries stay.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (var node : nodes.values()) {
+            try {
+                node.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        nodes.clear();
+        ring.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /*
+     * Drops every connection, the failed exchange may have left any of them in the middle of a message.
+     * Returns the error to be thrown.
+     */
+    private UncheckedIOException disconnect(IOException e) {
+        for (var node : nodes.values()) {
+            node.disconnect();
+        }
+        return new UncheckedIOException(e);
+    }
+
+    private String single(byte operation, String key, String value, boolean withValue) {
+        try {
+            var node = owner(key);
+            var request = request(node, operation);
+            request.writeString(key);
+            if (withValue) {
+                request.writeString(value);
+            }
+            node.out.flush();
+            readStatus(node.in);
+            return readString(node.in);
+        } catch (IOException e) {
+            throw disconnect(e);
+        }
+    }
+
+    private String[] putAll(TreeMap<Integer, Connection> ring, String[] keys, String[] values) throws IOException {
+        return batch(ring, PUT, keys, values);
+    }
+
+    /*
+     * Sends requests to the nodes until they take PIPELINE_WINDOW_BYTES, then reads their responses, and so on.
+     * Responses of a node come in the order of its requests.
+     */
+    private String[] batch(TreeMap<Integer, Connection> ring, byte operation, String[] keys, String[] values)
+            throws IOException {
+        var result = new String[keys.length];
+        var pending = new LinkedHashMap<Connection, List<Integer>>();
+
+        for (int start = 0; start < keys.length; ) {
+            pending.clear();
+            long windowBytes = 0;
+            int end = start;
+            while (end < keys.length) {
+                long requestBytes = 1 + stringSize(keys[end]) + (values != null ? stringSize(values[end]) : 0);
+                if (end > start && windowBytes + requestBytes > PIPELINE_WINDOW_BYTES) {
+                    break;
+                }
+                var node = ownerIn(ring, ringHash(keys[end]));
+                var request = request(node, operation);
+                request.writeString(keys[end]);
+                if (values != null) {
+                    request.writeString(values[end]);
+                }
+                windowBytes += requestBytes;
+                pending.computeIfAbsent(node, key -> new ArrayList<>()).add(end);
+                end++;
+            }
+            for (var node : pending.keySet()) {
+                node.out.flush();
+            }
+            for (var entry : pending.entrySet()) {
+                var node = entry.getKey();
+                for (int index : entry.getValue()) {
+                    readStatus(node.in);
+                    result[index] = readString(node.in);
+                }
+            }
+            start = end;
+        }
+        return result;
+    }
+
+    // copies entries of the ranges from one node to another, then removes them from the first one
+    private void move(Connection from, int[] ranges, Connection to) throws IOException {
+        request(from, SCAN).writeRanges(ranges);
+        from.out.flush();
+        var entries = readEntries(from);
+
+        var target = new TreeMap<Integer, Connection>();
+        target.put(0, to);
+        putAll(target, entries.keys.toArray(new String[0]), entries.values.toArray(new String[0]));
+
+        request(from, DROP).writeRanges(ranges);
+        from.out.flush();
+        readStatus(from.in);
+        from.in.readInt();
+    }
+
+    static final private class Entries {
+        private final List<String> keys = new ArrayList<>();
+        private final List<String> values = new ArrayList<>();
+    }
+
+    private static Entries readEntries(Connection node) throws IOException {
+        readStatus(node.in);
+        int count = node.in.readInt();
+        var entries = new Entries();
+        for (int i = 0; i < count; i++) {
+            entries.keys.add(readString(node.in));
+            entries.values.add(readString(node.in));
+        }
+        return entries;
+    }
+
+    /*
+     * Writes the operation code; arguments are written through the returned object.
+     */
+    private static Request request(Connection node, byte operation) throws IOException {
+        if (node.socket == null) {
+            node.connect();
+        }
+        node.out.writeByte(operation);
+        return new Request(node.out);
+    }
+
+    static final private class Request {
+        private final DataOutputStream out;
+
+        private Request(DataOutputStream out) {
+            this.out = out;
+        }
+
+        private void writeString(String s) throws IOException {
+            PartitionProtocol.writeString(out, s);
+        }
+
+        private void writeRanges(int[] ranges) throws IOException {
+            out.writeInt(ranges.length / 2);
+            for (int bound : ranges) {
+                out.writeInt(bound);
+            }
+        }
+    }
+
+    private Connection owner(String key) {
+        return ownerIn(ring, ringHash(key));
+    }
+
+    /**
+     * @throws IllegalStateException if the ring is empty
+     */
+    private static Connection ownerIn(TreeMap<Integer, Connection> ring, int position) {
+        if (ring.isEmpty()) {
+            throw new IllegalStateException("No nodes, add one first");
+        }
+        var point = ring.ceilingEntry(position);
+        return point != null ? point.getValue() : ring.firstEntry().getValue();
+    }
+
+    private static int[] points(InetSocketAddress address) {
+        var points = new int[VIRTUAL_NODES];
+        for (int i = 0; i < VIRTUAL_NODES; i++) {
+            points[i] = ringHash(address.getAddress().getHostAddress() + ":" + address.getPort() + "#" + i);
+        }
+        return points;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        var array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+}
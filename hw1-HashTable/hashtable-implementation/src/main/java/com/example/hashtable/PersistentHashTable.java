@@ -0,0 +1,357 @@
+package com.example.hashtable;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * Hash table with String as both key and value type that hands out immutable snapshots in O(1).
+ *
+ * Implemented as a hash array mapped trie: every level consumes {@link #BITS} bits of the hash,
+ * an inner node keeps a bitmap of present children and a dense array of them.
+ * A modification copies only the path from the root to the changed leaf and shares everything else,
+ * so a {@link Snapshot} is just a reference to the root of the moment.
+ *
+ * The table itself is meant for a single writer. Snapshots never change and may be read by any number
+ * of threads without locking, provided they were handed over safely (for example through a volatile field).
+ * Like {@link HashTable} accepts <code>null</code> both as a key and as a value.
+ */
+public class PersistentHashTable {
+
+    static final private int BITS = 5;
+    static final private int MASK = (1 << BITS) - 1;
+
+    private abstract static class Node {
+    }
+
+    static private class Leaf extends Node {
+        private final int hash;
+        private final String key;
+        private final String value;
+
+        private Leaf(int hash, String key, String value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Keys whose hashes are equal to the last bit.
+     */
+    static private class Collision extends Node {
+        private final int hash;
+        private final Leaf[] leaves;
+
+        private Collision(int hash, Leaf[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+    }
+
+    static private class Branch extends Node {
+        private final int bitmap;
+        private final Node[] children;
+
+        private Branch(int bitmap, Node[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+    }
+
+    /**
+     * Immutable view of the table at the moment it was taken.
+     */
+    public static class Snapshot {
+        private final Node root;
+        private final int size;
+
+        private Snapshot(Node root, int size) {
+            this.root = root;
+            this.size = size;
+        }
+
+        /**
+         * Checks if the specified key is present among keys of this snapshot.
+         * @return     <code>true</code> if this snapshot contains such key;
+         *             <code>false</code> otherwise.
+         */
+        public boolean contains(String key) {
+            return find(root, hash(key), key) != null;
+        }
+
+        /**
+         * Returns value mapped to the specified key in this snapshot or null if there is no mapping for the key.
+         * @return  the value, mapped to the key if it is present;
+         * 			<code>null</code> otherwise
+         */
+        public String get(String key) {
+            Leaf leaf = find(root, hash(key), key);
+            return leaf == null ? null : leaf.value;
+        }
+
+        /**
+         * Returns the number of mappings in this snapshot.
+         * @return	the number of mapping stored
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Passes every mapping of this snapshot to the action.
+         */
+        public void forEach(BiConsumer<String, String> action) {
+            forEachIn(root, action);
+        }
+    }
+
+    static final private Branch EMPTY = new Branch(0, new Node[0]);
+
+    private Node root = EMPTY;
+    private int entriesCount;
+
+    /**
+     * Constructs an empty PersistentHashTable
+     */
+    public PersistentHashTable() {}
+
+    /**
+     * Returns an immutable view of the current content. Takes O(1) and copies nothing.
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(root, entriesCount);
+    }
+
+    /**
+     * Checks if the specified key is present among stored keys.
+     * @return     <code>true</code> if this table contains such key;
+     *             <code>false</code> otherwise.
+     */
+    public boolean contains(String key) {
+        return find(root, hash(key), key) != null;
+    }
+
+    /**
+     * Returns value mapped to the specified key or null if this table contains no mapping for the key.
+     * @return  the value, mapped to the key if it is present;
+     * 			<code>null</code> otherwise
+     */
+    public String get(String key) {
+        Leaf leaf = find(root, hash(key), key);
+        return leaf == null ? null : leaf.value;
+    }
+
+    /**
+     * Stores value by key. Rewrites existing value. Snapshots taken before are not affected.
+     * @return  the previous value stored by this key,
+     * 			or <code>null</code> if there were no previous value
+     */
+    public String put(String key, String value) {
+        int hash = hash(key);
+        Leaf old = find(root, hash, key);
+        root = put(root, 0, new Leaf(hash, key, value));
+        if (old == null) {
+            entriesCount++;
+            return null;
+        }
+        return old.value;
+    }
+
+    /**
+     * Removes value stored by specified key. Snapshots taken before are not affected.
+     * @return 	the value stored by this key,
+     * 			or <code>null</code> if there were no previous value
+     */
+    public String remove(String key) {
+        int hash = hash(key);
+        Leaf old = find(root, hash, key);
+        if (old == null) {
+            return null;
+        }
+
+        Node rootNew = remove(root, 0, hash, key);
+        root = rootNew == null ? EMPTY : rootNew;
+        entriesCount--;
+        return old.value;
+    }
+
+    /**
+     * Removes all entries from the table. Snapshots taken before are not affected.
+     */
+    public void clear() {
+        root = EMPTY;
+        entriesCount = 0;
+    }
+
+    /**
+     * Returns the number of mappings stored.
+     * @return	the number of mapping stored
+     */
+    public int size() {
+        return entriesCount;
+    }
+
+    private static void forEachIn(Node node, BiConsumer<String, String> action) {
+        if (node instanceof Leaf) {
+            action.accept(((Leaf) node).key, ((Leaf) node).value);
+        } else if (node instanceof Collision) {
+            for (var leaf : ((Collision) node).leaves) {
+                action.accept(leaf.key, leaf.value);
+            }
+        } else {
+            // at most seven levels deep
+            for (var child : ((Branch) node).children) {
+                forEachIn(child, action);
+            }
+        }
+    }
+
+    private static Leaf find(Node node, int hash, String key) {
+        for (int shift = 0; ; shift += BITS) {
+            if (node instanceof Branch) {
+                var branch = (Branch) node;
+                int bit = bit(hash, shift);
+                if ((branch.bitmap & bit) == 0) {
+                    return null;
+                }
+                node = branch.children[index(branch.bitmap, bit)];
+            } else if (node instanceof Leaf) {
+                var leaf = (Leaf) node;
+                return leaf.hash == hash && Objects.equals(leaf.key, key) ? leaf : null;
+            } else {
+                var collision = (Collision) node;
+                if (collision.hash != hash) {
+                    return null;
+                }
+                for (var leaf : collision.leaves) {
+                    if (Objects.equals(leaf.key, key)) {
+                        return leaf;
+                    }
+                }
+                return null;
+            }
+        }
+    }
+
+    // returns a new version of the node with the leaf added or replaced, the node itself stays intact
+    private static Node put(Node node, int shift, Leaf leaf) {
+        if (node instanceof Branch) {
+            var branch = (Branch) node;
+            int bit = bit(leaf.hash, shift);
+            int index = index(branch.bitmap, bit);
+            if ((branch.bitmap & bit) == 0) {
+                var children = new Node[branch.children.length + 1];
+                System.arraycopy(branch.children, 0, children, 0, index);
+                children[index] = leaf;
+                System.arraycopy(branch.children, index, children, index + 1, branch.children.length - index);
+                return new Branch(branch.bitmap | bit, children);
+            }
+
+            var children = branch.children.clone();
+            children[index] = put(children[index], shift + BITS, leaf);
+            return new Branch(branch.bitmap, children);
+        }
+
+        if (node instanceof Leaf) {
+            var existing = (Leaf) node;
+            if (existing.hash == leaf.hash) {
+                if (Objects.equals(existing.key, leaf.key)) {
+                    return leaf;
+                }
+                return new Collision(leaf.hash, new Leaf[] {existing, leaf});
+            }
+            return merge(existing, existing.hash, leaf, shift);
+        }
+
+        var collision = (Collision) node;
+        if (collision.hash != leaf.hash) {
+            return merge(collision, collision.hash, leaf, shift);
+        }
+        for (int i = 0; i < collision.leaves.length; i++) {
+            if (Objects.equals(collision.leaves[i].key, leaf.key)) {
+                var leaves = collision.leaves.clone();
+                leaves[i] = leaf;
+                return new Collision(leaf.hash, leaves);
+            }
+        }
+        var leaves = Arrays.copyOf(collision.leaves, collision.leaves.length + 1);
+        leaves[collision.leaves.length] = leaf;
+        return new Collision(leaf.hash, leaves);
+    }
+
+    // builds branches down to the level where the hashes of the node and the leaf differ
+    private static Node merge(Node node, int nodeHash, Leaf leaf, int shift) {
+        int nodeBit = bit(nodeHash, shift);
+        int leafBit = bit(leaf.hash, shift);
+        if (nodeBit == leafBit) {
+            return new Branch(nodeBit, new Node[] {merge(node, nodeHash, leaf, shift + BITS)});
+        }
+        if (Integer.compareUnsigned(nodeBit, leafBit) < 0) {
+            return new Branch(nodeBit | leafBit, new Node[] {node, leaf});
+        }
+        return new Branch(nodeBit | leafBit, new Node[] {leaf, node});
+    }
+
+    // returns a new version of the node without the key, null if nothing is left; the key must be present
+    private static Node remove(Node node, int shift, int hash, String key) {
+        if (node instanceof Leaf) {
+            return null;
+        }
+
+        if (node instanceof Collision) {
+            var collision = (Collision) node;
+            if (collision.leaves.length == 2) {
+                return Objects.equals(collision.leaves[0].key, key) ? collision.leaves[1] : collision.leaves[0];
+            }
+            var leaves = new Leaf[collision.leaves.length - 1];
+            int j = 0;
+            for (var leaf : collision.leaves) {
+                if (!Objects.equals(leaf.key, key)) {
+                    leaves[j++] = leaf;
+                }
+            }
+            return new Collision(hash, leaves);
+        }
+
+        var branch = (Branch) node;
+        int bit = bit(hash, shift);
+        int index = index(branch.bitmap, bit);
+        Node child = remove(branch.children[index], shift + BITS, hash, key);
+
+        if (child != null) {
+            if (branch.children.length == 1 && !(child instanceof Branch)) {
+                // a branch with a single leaf is pointless, the leaf moves up
+                return child;
+            }
+            var children = branch.children.clone();
+            children[index] = child;
+            return new Branch(branch.bitmap, children);
+        }
+
+        if (branch.children.length == 1) {
+            return null;
+        }
+        if (branch.children.length == 2 && !(branch.children[1 - index] instanceof Branch)) {
+            return branch.children[1 - index];
+        }
+        var children = new Node[branch.children.length - 1];
+        System.arraycopy(branch.children, 0, children, 0, index);
+        System.arraycopy(branch.children, index + 1, children, index, children.length - index);
+        return new Branch(branch.bitmap & ~bit, children);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    // position of the child for the bit among present children
+    private static int index(int bitmap, int bit) {
+        return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    private static int hash(String key) {
+        int h = key == null ? 0 : key.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.hashtable;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of a chained table growing, its duration is the time the resize took.
+ * Committed only while metrics are enabled, see {@link HashTableMetrics}.
+ */
+@Name("com.example.hashtable.Resize")
+@Label("HashTable Resize")
+@Category("HashTable")
+@Description("A chained HashTable moved its entries to a bigger bucket array")
+class ResizeEvent extends jdk.jfr.Event {
+    @Label("Old Capacity")
+    int oldCapacity;
+
+    @Label("New Capacity")
+    int newCapacity;
+
+    @Label("Entries")
+    int entries;
+
+    @Label("Incremental")
+    boolean incremental;
+}
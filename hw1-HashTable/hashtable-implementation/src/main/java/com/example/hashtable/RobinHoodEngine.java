@@ -0,0 +1,199 @@
+package com.example.hashtable;
+
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * Open addressing with Robin Hood linear probing and backward-shift deletion.
+ *
+ * Keys, values and hash codes live in three parallel arrays, so there are no per-entry objects.
+ * A stored hash always has its highest bit set, which lets zero mark an empty slot
+ * (the null key is an ordinary key here).
+ */
+class RobinHoodEngine implements Engine {
+
+    static final private int INIT_CAPACITY = 16;
+    // the table grows when it is more than MAX_LOAD_NUMERATOR / MAX_LOAD_DENOMINATOR full
+    static final private int MAX_LOAD_NUMERATOR = 3;
+    static final private int MAX_LOAD_DENOMINATOR = 4;
+
+    private int[] hashes;
+    private String[] keys;
+    private String[] values;
+    private int mask;
+    private int entriesCount;
+
+    RobinHoodEngine() {
+        clear();
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return find(key) >= 0;
+    }
+
+    @Override
+    public String get(String key) {
+        int index = find(key);
+        return index >= 0 ? values[index] : null;
+    }
+
+    @Override
+    public String put(String key, String value) {
+        int hash = hash(key);
+        int index = find(key, hash);
+        if (index >= 0) {
+            String oldValue = values[index];
+            values[index] = value;
+            return oldValue;
+        }
+
+        if ((entriesCount + 1) * MAX_LOAD_DENOMINATOR > hashes.length * MAX_LOAD_NUMERATOR) {
+            resize(hashes.length * 2);
+        }
+        insert(hash, key, value);
+        entriesCount++;
+        return null;
+    }
+
+    @Override
+    public String remove(String key) {
+        int index = find(key);
+        if (index < 0) {
+            return null;
+        }
+        String oldValue = values[index];
+
+        // backward shift: pull every following displaced entry one slot closer to its home
+        int next = (index + 1) & mask;
+        while (hashes[next] != 0 && probeDistance(hashes[next], next) != 0) {
+            hashes[index] = hashes[next];
+            keys[index] = keys[next];
+            values[index] = values[next];
+            index = next;
+            next = (next + 1) & mask;
+        }
+        hashes[index] = 0;
+        keys[index] = null;
+        values[index] = null;
+
+        entriesCount--;
+        return oldValue;
+    }
+
+    @Override
+    public void clear() {
+        allocate(INIT_CAPACITY);
+        entriesCount = 0;
+    }
+
+    @Override
+    public int size() {
+        return entriesCount;
+    }
+
+    @Override
+    public void reserve(int additional) {
+        int capacity = hashes.length;
+        while (((long) entriesCount + additional) * MAX_LOAD_DENOMINATOR > (long) capacity * MAX_LOAD_NUMERATOR) {
+            capacity *= 2;
+        }
+        if (capacity != hashes.length) {
+            resize(capacity);
+        }
+    }
+
+    @Override
+    public int slotCount() {
+        return hashes.length;
+    }
+
+    @Override
+    public void forEachInSlots(int from, int to, BiConsumer<String, String> action) {
+        for (int i = from; i < to; i++) {
+            if (hashes[i] != 0) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    private int find(String key) {
+        return find(key, hash(key));
+    }
+
+    /*
+     * Returns the slot holding the key or -1. The scan stops as soon as it meets an entry
+     * that is closer to its home slot than the searched key would be.
+     */
+    private int find(String key, int hash) {
+        int index = hash & mask;
+        for (int distance = 0; ; distance++) {
+            int h = hashes[index];
+            if (h == 0 || probeDistance(h, index) < distance) {
+                return -1;
+            }
+            if (h == hash && Objects.equals(keys[index], key)) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    // the key must be absent and there must be a free slot
+    private void insert(int hash, String key, String value) {
+        int index = hash & mask;
+        for (int distance = 0; ; distance++) {
+            int h = hashes[index];
+            if (h == 0) {
+                hashes[index] = hash;
+                keys[index] = key;
+                values[index] = value;
+                return;
+            }
+
+            int existingDistance = probeDistance(h, index);
+            if (existingDistance < distance) {
+                // take the slot from the richer entry and carry on inserting it instead
+                String k = keys[index];
+                String v = values[index];
+                hashes[index] = hash;
+                keys[index] = key;
+                values[index] = value;
+                hash = h;
+                key = k;
+                value = v;
+                distance = existingDistance;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void resize(int capacity) {
+        int[] oldHashes = hashes;
+        String[] oldKeys = keys;
+        String[] oldValues = values;
+
+        allocate(capacity);
+        for (int i = 0; i < oldHashes.length; i++) {
+            if (oldHashes[i] != 0) {
+                insert(oldHashes[i], oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        hashes = new int[capacity];
+        keys = new String[capacity];
+        values = new String[capacity];
+        mask = capacity - 1;
+    }
+
+    private int probeDistance(int hash, int index) {
+        return (index - hash) & mask;
+    }
+
+    private static int hash(String key) {
+        int h = key == null ? 0 : key.hashCode();
+        return (h ^ (h >>> 16)) | Integer.MIN_VALUE;
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.hashtable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of the entries of a {@link ChainedEngine}. All numbers are big-endian.
+ *
+ *   int  -- magic number
+ *   int  -- format version
+ *   sections, each an int tag, a long length of the payload in bytes and the payload:
+ *     META      -- int number of buckets, int number of entries
+ *     ENTRIES   -- a key followed by a value for every entry;
+ *                  a string is an int length, -1 for null, followed by its UTF-16 chars
+ *   int  -- CRC32 of everything before it
+ *
+ * Readers skip sections they do not know. The hash seed is a secret of the running table and is not stored,
+ * so a loaded table gets a new seed and its entries are hashed again. Version 1 files, which kept the seed
+ * in front of the meta section and a directory of buckets in section 2, are still read, ignoring both.
+ *
+ * The file is mapped in segments of {@link #SEGMENT_SIZE} bytes, so its size is not limited
+ * by the int indexing of a single buffer.
+ */
+final class SnapshotFile {
+    static final private int MAGIC = 0x48545350;
+    static final private int VERSION = 2;
+    static final private int VERSION_SEEDED = 1;
+
+    static final private int META = 1;
+    static final private int ENTRIES = 3;
+
+    static final private int HEADER_SIZE = 8;
+    static final private int SECTION_HEADER_SIZE = 12;
+    static final private int META_SIZE = 8;
+    static final private int CHECKSUM_SIZE = 4;
+    static final private int NULL_LENGTH = -1;
+
+    static final private int SEGMENT_SHIFT = 30;
+    static final private long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+    private SnapshotFile() {}
+
+    /**
+     * Replaces the file with a snapshot of the buckets. The file is written next to the target
+     * and moved over it, so a failed write leaves the previous snapshot intact.
+     */
+    static void write(Path path, Bucket[] buckets) throws IOException {
+        write(path, buckets.length, action -> {
+            for (var bucket : buckets) {
+                if (bucket != null) {
+                    bucket.forEach(action);
+                }
+            }
+        });
+    }
+
+    /**
+     * Replaces the file with a snapshot of the entries <code>entries</code> passes to its argument.
+     * It is called twice and must pass the same entries both times.
+     * The file is written next to the target, forced to the disk and moved over the target,
+     * and then the move itself is forced, so a crash at any point leaves either the previous
+     * or the new snapshot in place.
+     * @param buckets   number of buckets a loaded table starts with
+     */
+    static void write(Path path, int buckets, Consumer<BiConsumer<String, String>> entries) throws IOException {
+        var entriesSize = new long[1];
+        var entriesCount = new int[1];
+        entries.accept((key, value) -> {
+            entriesSize[0] += stringSize(key) + stringSize(value);
+            entriesCount[0]++;
+        });
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        var checksum = new CRC32();
+        try (var channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             var out = new DataOutputStream(new CheckedOutputStream(
+                     new BufferedOutputStream(Channels.newOutputStream(channel)), checksum))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            writeSectionHeader(out, META, META_SIZE);
+            out.writeInt(buckets);
+            out.writeInt(entriesCount[0]);
+
+            writeSectionHeader(out, ENTRIES, entriesSize[0]);
+            var failure = new IOException[1];
+            entries.accept((key, value) -> {
+                if (failure[0] != null) {
+                    return;
+                }
+                try {
+                    writeString(out, key);
+                    writeString(out, value);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+
+            out.writeInt((int) checksum.getValue());
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(path.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Forces the entries of the directory to the disk, so that files created, moved or deleted in it
+     * stay so after a crash. Does nothing where directories can not be opened.
+     */
+    static void forceDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            // Windows does not open directories, it makes metadata durable on its own
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Maps the file, verifies it and passes the number of buckets it was written with
+     * and then every entry in file order to the consumers.
+     * @throws IOException if the file can not be read, is corrupted or has unsupported version
+     */
+    static void read(Path path, IntConsumer meta, BiConsumer<String, String> entries) throws IOException {
+        MappedFile file;
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE + CHECKSUM_SIZE) {
+                throw new IOException("Truncated snapshot: " + path);
+            }
+            file = new MappedFile(channel, path);
+        }
+
+        if (file.getInt(0) != MAGIC) {
+            throw new IOException("Not a snapshot file: " + path);
+        }
+        int version = file.getInt(4);
+        if (version != VERSION && version != VERSION_SEEDED) {
+            throw new IOException("Unsupported snapshot version " + version + ": " + path);
+        }
+        long end = file.size - CHECKSUM_SIZE;
+        if (file.checksum(end) != file.getInt(end)) {
+            throw new IOException("Corrupted snapshot: " + path);
+        }
+
+        int capacity = -1;
+        int entriesCount = -1;
+        long entriesStart = -1;
+        long entriesEnd = -1;
+        for (long position = HEADER_SIZE; position < end; ) {
+            if (end - position < SECTION_HEADER_SIZE) {
+                throw new IOException("Corrupted snapshot: " + path);
+            }
+            int tag = file.getInt(position);
+            long length = file.getLong(position + 4);
+            position += SECTION_HEADER_SIZE;
+            if (length < 0 || length > end - position) {
+                throw new IOException("Corrupted snapshot: " + path);
+            }
+
+            if (tag == META) {
+                int seedSize = version == VERSION_SEEDED ? Long.BYTES : 0;
+                if (length < seedSize + META_SIZE) {
+                    throw new IOException("Corrupted snapshot: " + path);
+                }
+                capacity = file.getInt(position + seedSize);
+                entriesCount = file.getInt(position + seedSize + 4);
+                if (capacity <= 0 || entriesCount < 0) {
+                    throw new IOException("Corrupted snapshot: " + path);
+                }
+            } else if (tag == ENTRIES) {
+                entriesStart = position;
+                entriesEnd = position + length;
+            }
+            position += length;
+        }
+        if (capacity < 0 || entriesStart < 0) {
+            throw new IOException("Corrupted snapshot: " + path);
+        }
+
+        meta.accept(capacity);
+        long position = entriesStart;
+        for (int i = 0; i < entriesCount; i++) {
+            String key = file.getString(position, entriesEnd);
+            position += stringSize(key);
+            if (position > entriesEnd) {
+                throw new IOException("Corrupted snapshot: " + path);
+            }
+            String value = file.getString(position, entriesEnd);
+            position += stringSize(value);
+            if (position > entriesEnd) {
+                throw new IOException("Corrupted snapshot: " + path);
+            }
+            entries.accept(key, value);
+        }
+    }
+
+    private static void writeSectionHeader(DataOutputStream out, int tag, long length) throws IOException {
+        out.writeInt(tag);
+        out.writeLong(length);
+    }
+
+    private static long stringSize(String s) {
+        return Integer.BYTES + (s == null ? 0 : (long) s.length() * Character.BYTES);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        out.writeInt(s.length());
+        out.writeChars(s);
+    }
+
+    /*
+     * A read-only mapping of the whole file as a sequence of segments. Reads may cross segment boundaries.
+     */
+    private static final class MappedFile {
+        private final Path path;
+        private final long size;
+        private final ByteBuffer[] segments;
+
+        MappedFile(FileChannel channel, Path path) throws IOException {
+            this.path = path;
+            size = channel.size();
+            segments = new ByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i << SEGMENT_SHIFT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+            }
+        }
+
+        byte get(long position) {
+            return segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & (SEGMENT_SIZE - 1)));
+        }
+
+        int getInt(long position) {
+            ByteBuffer segment = segments[(int) (position >>> SEGMENT_SHIFT)];
+            int offset = (int) (position & (SEGMENT_SIZE - 1));
+            if (offset + Integer.BYTES <= segment.limit()) {
+                return segment.getInt(offset);
+            }
+            int result = 0;
+            for (int i = 0; i < Integer.BYTES; i++) {
+                result = result << 8 | (get(position + i) & 0xFF);
+            }
+            return result;
+        }
+
+        long getLong(long position) {
+            return (long) getInt(position) << 32 | (getInt(position + Integer.BYTES) & 0xFFFFFFFFL);
+        }
+
+        // a string written by writeString that must end before the limit
+        String getString(long position, long limit) throws IOException {
+            if (limit - position < Integer.BYTES) {
+                throw new IOException("Corrupted snapshot: " + path);
+            }
+            int length = getInt(position);
+            if (length == NULL_LENGTH) {
+                return null;
+            }
+            position += Integer.BYTES;
+            if (length < 0 || (long) length * Character.BYTES > limit - position) {
+                throw new IOException("Corrupted snapshot: " + path);
+            }
+
+            var chars = new char[length];
+            for (int i = 0; i < length; ) {
+                ByteBuffer segment = segments[(int) (position >>> SEGMENT_SHIFT)];
+                int offset = (int) (position & (SEGMENT_SIZE - 1));
+                int count = Math.min(length - i, (segment.limit() - offset) / Character.BYTES);
+                if (count == 0) {
+                    // a char split between two segments
+                    chars[i++] = (char) ((get(position) & 0xFF) << 8 | (get(position + 1) & 0xFF));
+                    position += Character.BYTES;
+                    continue;
+                }
+                segment.duplicate().position(offset).asCharBuffer().get(chars, i, count);
+                i += count;
+                position += (long) count * Character.BYTES;
+            }
+            return new String(chars);
+        }
+
+        int checksum(long end) {
+            var checksum = new CRC32();
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i << SEGMENT_SHIFT;
+                if (start >= end) {
+                    break;
+                }
+                checksum.update(segments[i].duplicate().limit((int) Math.min(segments[i].limit(), end - start)));
+            }
+            return (int) checksum.getValue();
+        }
+    }
+}
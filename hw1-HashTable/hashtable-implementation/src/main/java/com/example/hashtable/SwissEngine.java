@@ -0,0 +1,221 @@
+package com.example.hashtable;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * Open addressing laid out as a Swiss table.
+ *
+ * Slots are split into groups of {@link #GROUP_SIZE}. Every slot has a control byte: either
+ * {@link #EMPTY}, {@link #DELETED} or the lowest 7 bits of the hash of the stored key.
+ * The control bytes of a group are packed into one long and compared with the searched 7 bits
+ * all at once with word-wide bit tricks, so a lookup usually reads one control word and one key.
+ * Groups are probed quadratically.
+ */
+class SwissEngine implements Engine {
+
+    static final private int GROUP_SIZE = 8;
+    static final private int INIT_GROUPS = 2;
+    // the table is rehashed when used slots, deleted ones included, exceed MAX_LOAD_NUMERATOR / MAX_LOAD_DENOMINATOR
+    static final private int MAX_LOAD_NUMERATOR = 7;
+    static final private int MAX_LOAD_DENOMINATOR = 8;
+
+    static final private int EMPTY = 0x80;
+    static final private int DELETED = 0xFE;
+
+    static final private long LSBS = 0x0101010101010101L;
+    static final private long MSBS = 0x8080808080808080L;
+
+    private long[] controls;
+    private String[] keys;
+    private String[] values;
+    private int groupMask;
+    private int entriesCount;
+    private int deletedCount;
+
+    SwissEngine() {
+        clear();
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return find(key, hash(key)) >= 0;
+    }
+
+    @Override
+    public String get(String key) {
+        int index = find(key, hash(key));
+        return index >= 0 ? values[index] : null;
+    }
+
+    @Override
+    public String put(String key, String value) {
+        int hash = hash(key);
+        int index = find(key, hash);
+        if (index >= 0) {
+            String oldValue = values[index];
+            values[index] = value;
+            return oldValue;
+        }
+
+        if ((entriesCount + deletedCount + 1) * MAX_LOAD_DENOMINATOR > keys.length * MAX_LOAD_NUMERATOR) {
+            // only tombstones are cleared if the table is not that full of live entries
+            boolean grow = (entriesCount + 1) * MAX_LOAD_DENOMINATOR * 2 > keys.length * MAX_LOAD_NUMERATOR;
+            rehash(grow ? controls.length * 2 : controls.length);
+        }
+        insert(hash, key, value);
+        entriesCount++;
+        return null;
+    }
+
+    @Override
+    public String remove(String key) {
+        int index = find(key, hash(key));
+        if (index < 0) {
+            return null;
+        }
+        String oldValue = values[index];
+        keys[index] = null;
+        values[index] = null;
+
+        // a probe that reached a group with an empty slot stopped there, so no probe passes through this group
+        int group = index / GROUP_SIZE;
+        if (matchEmpty(controls[group]) != 0) {
+            setControl(index, EMPTY);
+        } else {
+            setControl(index, DELETED);
+            deletedCount++;
+        }
+
+        entriesCount--;
+        return oldValue;
+    }
+
+    @Override
+    public void clear() {
+        allocate(INIT_GROUPS);
+        entriesCount = 0;
+    }
+
+    @Override
+    public int size() {
+        return entriesCount;
+    }
+
+    @Override
+    public void reserve(int additional) {
+        int groups = controls.length;
+        while (((long) entriesCount + additional) * MAX_LOAD_DENOMINATOR > (long) groups * GROUP_SIZE * MAX_LOAD_NUMERATOR) {
+            groups *= 2;
+        }
+        if (groups != controls.length) {
+            rehash(groups);
+        }
+    }
+
+    @Override
+    public int slotCount() {
+        return keys.length;
+    }
+
+    @Override
+    public void forEachInSlots(int from, int to, BiConsumer<String, String> action) {
+        for (int i = from; i < to; i++) {
+            int control = controlAt(i);
+            if (control != EMPTY && control != DELETED) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    private int find(String key, int hash) {
+        int h2 = hash & 0x7F;
+        int group = (hash >>> 7) & groupMask;
+        for (int step = 1; ; step++) {
+            long word = controls[group];
+            for (long match = match(word, h2); match != 0; match &= match - 1) {
+                int index = group * GROUP_SIZE + (Long.numberOfTrailingZeros(match) >>> 3);
+                if (Objects.equals(keys[index], key)) {
+                    return index;
+                }
+            }
+            if (matchEmpty(word) != 0) {
+                return -1;
+            }
+            group = (group + step) & groupMask;
+        }
+    }
+
+    // the key must be absent and there must be a free slot
+    private void insert(int hash, String key, String value) {
+        int group = (hash >>> 7) & groupMask;
+        for (int step = 1; ; step++) {
+            long free = controls[group] & MSBS;
+            if (free != 0) {
+                int index = group * GROUP_SIZE + (Long.numberOfTrailingZeros(free) >>> 3);
+                if (controlAt(index) == DELETED) {
+                    deletedCount--;
+                }
+                setControl(index, hash & 0x7F);
+                keys[index] = key;
+                values[index] = value;
+                return;
+            }
+            group = (group + step) & groupMask;
+        }
+    }
+
+    private void rehash(int groups) {
+        long[] oldControls = controls;
+        String[] oldKeys = keys;
+        String[] oldValues = values;
+
+        allocate(groups);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int control = (int) (oldControls[i / GROUP_SIZE] >>> (i % GROUP_SIZE * 8)) & 0xFF;
+            if (control != EMPTY && control != DELETED) {
+                insert(hash(oldKeys[i]), oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int groups) {
+        controls = new long[groups];
+        Arrays.fill(controls, LSBS * EMPTY);
+        keys = new String[groups * GROUP_SIZE];
+        values = new String[groups * GROUP_SIZE];
+        groupMask = groups - 1;
+        deletedCount = 0;
+    }
+
+    private int controlAt(int index) {
+        return (int) (controls[index / GROUP_SIZE] >>> (index % GROUP_SIZE * 8)) & 0xFF;
+    }
+
+    private void setControl(int index, int control) {
+        int shift = index % GROUP_SIZE * 8;
+        int group = index / GROUP_SIZE;
+        controls[group] = (controls[group] & ~(0xFFL << shift)) | ((long) control << shift);
+    }
+
+    /*
+     * Returns a word with the highest bit set in every byte equal to h2.
+     * May also report a byte right above a matching one, keys are compared anyway.
+     */
+    private static long match(long word, int h2) {
+        long x = word ^ (LSBS * h2);
+        return (x - LSBS) & ~x & MSBS;
+    }
+
+    // EMPTY is the only control byte with the highest bit set and the second lowest bit clear
+    private static long matchEmpty(long word) {
+        return word & (~word << 6) & MSBS;
+    }
+
+    private static int hash(String key) {
+        int h = key == null ? 0 : key.hashCode();
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 15);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.hashtable;
+
+import java.util.Comparator;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Bucket backed by a red-black tree, so lookups in a bucket flooded with colliding keys take O(log n).
+ *
+ * Like {@link java.util.HashMap} orders keys by their hash code first and by the keys themselves then.
+ * String caches its hash code, so most comparisons do not look at characters at all.
+ */
+class TreeBucket extends Bucket {
+    static final private Comparator<String> ORDER = Comparator.nullsFirst(
+            Comparator.comparingInt(String::hashCode).thenComparing(Comparator.naturalOrder()));
+
+    private final TreeMap<String, String> tree = new TreeMap<>(HashTableMetrics.ENABLED ? this::compare : ORDER);
+    // comparisons made by the tree since the last metered lookup, counted only with metrics enabled
+    private int comparisons;
+
+    @Override
+    public boolean contains(String key) {
+        return tree.containsKey(key);
+    }
+
+    @Override
+    public String get(String key) {
+        return tree.get(key);
+    }
+
+    @Override
+    boolean contains(String key, HashTableMetrics metrics) {
+        comparisons = 0;
+        boolean result = tree.containsKey(key);
+        metrics.recordLookup(comparisons);
+        return result;
+    }
+
+    @Override
+    String get(String key, HashTableMetrics metrics) {
+        comparisons = 0;
+        String result = tree.get(key);
+        metrics.recordLookup(comparisons);
+        return result;
+    }
+
+    @Override
+    public String put(String key, String value) {
+        return tree.put(key, value);
+    }
+
+    @Override
+    public String remove(String key) {
+        return tree.remove(key);
+    }
+
+    @Override
+    public int size() {
+        return tree.size();
+    }
+
+    @Override
+    void forEach(BiConsumer<String, String> action) {
+        tree.forEach(action);
+    }
+
+    @Override
+    String firstKey() {
+        return tree.firstKey();
+    }
+
+    @Override
+    void moveFirstTo(Bucket target) {
+        var entry = tree.pollFirstEntry();
+        target.put(entry.getKey(), entry.getValue());
+    }
+
+    private int compare(String a, String b) {
+        comparisons++;
+        return ORDER.compare(a, b);
+    }
+}
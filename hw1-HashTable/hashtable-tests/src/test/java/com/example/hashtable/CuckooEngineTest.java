@@ -0,0 +1,55 @@
+package com.example.hashtable;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CuckooEngineTest {
+    private static final int KEYS = 300;
+
+    private static int stashCount(Engine engine) {
+        // the stash is the last slot
+        int[] count = {0};
+        engine.forEachInSlots(engine.slotCount() - 1, engine.slotCount(), (key, value) -> count[0]++);
+        return count[0];
+    }
+
+    @Test
+    void keysThatAlwaysCollide() {
+        // every key gets the same two buckets whatever the seeds, so no rebuild can help
+        var engine = new CuckooEngine((key, seed) -> 0);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            for (int i = 0; i < KEYS; i++) {
+                assertNull(engine.put(String.valueOf(i), "value" + i));
+            }
+            assertEquals("value0", engine.put("0", "new"));
+            assertEquals(KEYS, engine.size());
+            int stashed = stashCount(engine);
+            assertTrue(stashed >= KEYS - 8);
+
+            for (int i = 0; i < KEYS; i++) {
+                assertEquals(i == 0 ? "new" : "value" + i, engine.get(String.valueOf(i)));
+            }
+            assertFalse(engine.contains(String.valueOf(KEYS)));
+
+            for (int i = 0; i < KEYS; i += 2) {
+                assertEquals(i == 0 ? "new" : "value" + i, engine.remove(String.valueOf(i)));
+            }
+            assertEquals(KEYS / 2, engine.size());
+            // entries removed from the buckets are replaced by stashed ones
+            assertEquals(KEYS / 2 - (KEYS - stashed), stashCount(engine));
+            for (int i = 0; i < KEYS; i++) {
+                assertEquals(i % 2 == 1 ? "value" + i : null, engine.get(String.valueOf(i)));
+            }
+
+            for (int i = 1; i < KEYS; i += 2) {
+                assertEquals("value" + i, engine.remove(String.valueOf(i)));
+            }
+            assertEquals(0, engine.size());
+            assertEquals(0, stashCount(engine));
+        });
+    }
+}
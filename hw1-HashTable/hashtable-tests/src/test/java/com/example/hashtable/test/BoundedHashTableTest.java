@@ -0,0 +1,168 @@
+package com.example.hashtable.test;
+
+import com.example.hashtable.BoundedHashTable;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedHashTableTest {
+    private long now;
+
+    @Test
+    void basicOperations() {
+        var table = new BoundedHashTable(10);
+        assertNull(table.put("a", "aa"));
+        assertNull(table.put(null, "n"));
+        assertEquals("aa", table.put("a", "ab"));
+
+        assertTrue(table.contains("a"));
+        assertTrue(table.contains(null));
+        assertFalse(table.contains("b"));
+        assertEquals("ab", table.get("a"));
+        assertEquals("n", table.remove(null));
+        assertEquals(1, table.size());
+
+        table.clear();
+        assertEquals(0, table.size());
+        assertFalse(table.contains("a"));
+    }
+
+    @Test
+    void invalidMaximumSize() {
+        assertThrows(IllegalArgumentException.class, () -> new BoundedHashTable(0));
+    }
+
+    @Test
+    void sizeStaysBounded() {
+        var table = new BoundedHashTable(100);
+        for (int i = 0; i < 10000; i++) {
+            table.put(String.valueOf(i), "");
+            assertTrue(table.size() <= 100);
+        }
+        assertEquals(100, table.size());
+        assertEquals(9900, table.evictionCount());
+    }
+
+    @Test
+    void hugeMaximumSize() {
+        for (int maximumSize : new int[] {(1 << 28) + 1, Integer.MAX_VALUE}) {
+            var table = new BoundedHashTable(maximumSize);
+            for (int i = 0; i < 100000; i++) {
+                table.put(String.valueOf(i), "");
+            }
+            assertEquals(100000, table.size());
+            assertEquals(0, table.evictionCount());
+            for (int i = 0; i < 100000; i++) {
+                assertTrue(table.contains(String.valueOf(i)));
+            }
+        }
+    }
+
+    @Test
+    void singleEntryCache() {
+        var table = new BoundedHashTable(1);
+        table.put("a", "1");
+        table.put("b", "2");
+
+        assertEquals(1, table.size());
+        assertEquals(1, table.evictionCount());
+    }
+
+    @Test
+    void frequentKeysSurviveScan() {
+        var table = new BoundedHashTable(100);
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 50; i++) {
+                if (table.get("hot" + i) == null) {
+                    table.put("hot" + i, String.valueOf(i));
+                }
+            }
+            // pushes the last hot key out of the window, so every hot key gets protected
+            table.put("cold", "");
+        }
+
+        // every key of the scan is used once only
+        for (int i = 0; i < 1000; i++) {
+            table.put("scan" + i, "");
+        }
+
+        int survived = 0;
+        for (int i = 0; i < 50; i++) {
+            if (table.contains("hot" + i)) {
+                survived++;
+            }
+        }
+        assertEquals(50, survived);
+    }
+
+    @Test
+    void manyKeysWithTheSameHashCode() {
+        // "Aa" and "BB" have the same hash code, so do all 2^12 concatenations of 12 of them
+        var keys = new String[1 << 12];
+        for (int i = 0; i < keys.length; i++) {
+            var key = new StringBuilder();
+            for (int bit = 0; bit < 12; bit++) {
+                key.append((i >> bit & 1) == 0 ? "Aa" : "BB");
+            }
+            keys[i] = key.toString();
+        }
+
+        var table = new BoundedHashTable(keys.length / 2);
+        for (String key : keys) {
+            table.put(key, key);
+        }
+        assertEquals(keys.length / 2, table.size());
+        assertEquals(keys.length / 2, table.evictionCount());
+
+        int present = 0;
+        for (String key : keys) {
+            if (table.contains(key)) {
+                assertEquals(key, table.remove(key));
+                present++;
+            }
+        }
+        assertEquals(keys.length / 2, present);
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    void hitAndMissCounters() {
+        var table = new BoundedHashTable(10);
+        table.put("a", "1");
+
+        table.get("a");
+        table.get("a");
+        table.get("b");
+        table.contains("c");
+
+        assertEquals(2, table.hitCount());
+        assertEquals(1, table.missCount());
+    }
+
+    @Test
+    void entriesExpire() {
+        var table = new BoundedHashTable(10, () -> now);
+        table.put("short", "1", 100);
+        table.put("long", "2", 1000);
+        table.put("forever", "3");
+
+        now = 500;
+
+        assertFalse(table.contains("short"));
+        assertNull(table.get("short"));
+        assertEquals("2", table.get("long"));
+        assertEquals(2, table.size());
+
+        now = 5000;
+
+        assertNull(table.put("long", "4"));
+        assertEquals("4", table.get("long"));
+        assertEquals("3", table.get("forever"));
+    }
+
+    @Test
+    void invalidTimeToLive() {
+        var table = new BoundedHashTable(10);
+        assertThrows(IllegalArgumentException.class, () -> table.put("a", "b", 0));
+    }
+}
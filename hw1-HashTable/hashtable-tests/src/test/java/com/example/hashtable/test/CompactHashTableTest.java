@@ -0,0 +1,69 @@
+package com.example.hashtable.test;
+
+import com.example.hashtable.HashTable;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactHashTableTest extends HashTableTest {
+    @Override
+    HashTable newTable() {
+        return new HashTable(HashTable.Layout.COMPACT);
+    }
+
+    @Test
+    void wideLatinAndNullStrings() {
+        HashTable table = newTable();
+        table.put("\u043A\u043B\u044E\u0447", "\u0437\u043D\u0430\u0447\u0435\u043D\u0438\u0435");
+        table.put("caf\u00E9", "\u00FF");
+        table.put("\uD83D\uDD25", null);
+        table.put(null, "");
+
+        assertEquals("\u0437\u043D\u0430\u0447\u0435\u043D\u0438\u0435", table.get("\u043A\u043B\u044E\u0447"));
+        assertEquals("\u00FF", table.get("caf\u00E9"));
+        assertFalse(table.contains("cafe"));
+        assertTrue(table.contains("\uD83D\uDD25"));
+        assertNull(table.get("\uD83D\uDD25"));
+        assertEquals("", table.get(null));
+        assertFalse(table.contains(""));
+    }
+
+    @Test
+    void sharedValuesOutliveSomeOfTheirKeys() {
+        HashTable table = newTable();
+        for (int i = 0; i < 1000; i++) {
+            table.put(String.valueOf(i), "shared" + i % 3);
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            table.remove(String.valueOf(i));
+        }
+        table.put("1", "shared1");
+        table.put("3", "other");
+
+        for (int i = 1; i < 1000; i += 2) {
+            String expected = i == 3 ? "other" : "shared" + i % 3;
+            assertEquals(expected, table.get(String.valueOf(i)));
+        }
+    }
+
+    @Test
+    void churnReclaimsReleasedStrings() {
+        HashTable table = newTable();
+        String big = "x".repeat(100_000);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 2000; i++) {
+                table.put("key" + i, "value" + (i + round) % 50 + "\u0444".repeat(round % 3));
+            }
+            table.put("big", big + round);
+            for (int i = 0; i < 2000; i += 2) {
+                table.remove("key" + i);
+            }
+        }
+
+        assertEquals(1001, table.size());
+        assertEquals(big + 19, table.get("big"));
+        for (int i = 1; i < 2000; i += 2) {
+            assertEquals("value" + (i + 19) % 50 + "\u0444", table.get("key" + i));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.hashtable.test;
+
+import com.example.hashtable.ConcurrentHashTable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.example.hashtable.test.ConcurrentRunner.THREADS;
+import static com.example.hashtable.test.ConcurrentRunner.runConcurrently;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentHashTableTest {
+    private ConcurrentHashTable table;
+
+    @BeforeEach
+    void initTable() {
+        table = new ConcurrentHashTable();
+    }
+
+    @Test
+    void basicOperations() {
+        assertNull(table.put("a", "aa"));
+        assertNull(table.put(null, "n"));
+        assertEquals("aa", table.put("a", "ab"));
+
+        assertTrue(table.contains("a"));
+        assertTrue(table.contains(null));
+        assertFalse(table.contains("b"));
+        assertEquals("ab", table.get("a"));
+        assertEquals(2, table.size());
+
+        assertEquals("n", table.remove(null));
+        assertNull(table.remove(null));
+        assertEquals(1, table.size());
+
+        table.clear();
+        assertEquals(0, table.size());
+        assertNull(table.get("a"));
+    }
+
+    @Test
+    void collisions() {
+        table.put("FB", "1");
+        table.put("Ea", "2");
+
+        assertEquals("1", table.remove("FB"));
+        assertEquals("2", table.get("Ea"));
+        assertNull(table.get("FB"));
+    }
+
+    @Test
+    void disjointPutsFromManyThreads() throws Exception {
+        runConcurrently(thread -> {
+            for (int i = 0; i < 20000; i++) {
+                table.put(thread + ":" + i, String.valueOf(i));
+            }
+        });
+
+        assertEquals(THREADS * 20000, table.size());
+        for (int thread = 0; thread < THREADS; thread++) {
+            for (int i = 0; i < 20000; i++) {
+                assertEquals(String.valueOf(i), table.get(thread + ":" + i));
+            }
+        }
+    }
+
+    @Test
+    void putAndRemoveSameKeysFromManyThreads() throws Exception {
+        runConcurrently(thread -> {
+            for (int round = 0; round < 20; round++) {
+                for (int i = 0; i < 1000; i++) {
+                    table.put(String.valueOf(i), String.valueOf(thread));
+                }
+                for (int i = thread; i < 1000; i += THREADS) {
+                    table.remove(String.valueOf(i));
+                }
+            }
+            // every thread puts everything back at the end
+            for (int i = 0; i < 1000; i++) {
+                table.put(String.valueOf(i), "done");
+            }
+        });
+
+        assertEquals(1000, table.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("done", table.get(String.valueOf(i)));
+        }
+    }
+
+    @Test
+    void readersSeeStableKeysWhileTableGrows() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            table.put("stable" + i, String.valueOf(i));
+        }
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < 20000; i++) {
+                if (thread % 2 == 0) {
+                    table.put(thread + ":" + i, "");
+                } else {
+                    String key = "stable" + (i % 100);
+                    assertEquals(String.valueOf(i % 100), table.get(key));
+                }
+            }
+        });
+
+        assertEquals(100 + THREADS / 2 * 20000, table.size());
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.hashtable.test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Starts the same body in several threads at once and reports the first failure.
+ */
+class ConcurrentRunner {
+    static final int THREADS = 8;
+
+    interface ThreadBody {
+        void run(int thread) throws Exception;
+    }
+
+    static void runConcurrently(ThreadBody body) throws Exception {
+        var barrier = new CyclicBarrier(THREADS);
+        var failure = new AtomicReference<Throwable>();
+        var threads = new ArrayList<Thread>();
+
+        for (int i = 0; i < THREADS; i++) {
+            int thread = i;
+            threads.add(new Thread(() -> {
+                try {
+                    barrier.await();
+                    body.run(thread);
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        for (var thread : threads) {
+            thread.start();
+        }
+        for (var thread : threads) {
+            thread.join();
+        }
+
+        if (failure.get() != null) {
+            fail(failure.get());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.hashtable.test;
+
+import com.example.hashtable.HashTable;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CuckooHashTableTest extends HashTableTest {
+    @Override
+    HashTable newTable() {
+        return new HashTable(HashTable.Layout.CUCKOO);
+    }
+
+    @Test
+    void fillsUpAndEmptiesAgain() {
+        HashTable table = newTable();
+        for (int i = 0; i < 100000; i++) {
+            assertNull(table.put(String.valueOf(i), String.valueOf(i)));
+        }
+        for (int i = 0; i < 100000; i++) {
+            assertEquals(String.valueOf(i), table.get(String.valueOf(i)));
+        }
+        for (int i = 0; i < 100000; i++) {
+            assertEquals(String.valueOf(i), table.remove(String.valueOf(i)));
+        }
+
+        assertEquals(0, table.size());
+        assertFalse(table.contains("0"));
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.hashtable.test;
+
+import com.example.hashtable.DurableHashTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DurableHashTableTest {
+    private Path directory;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("durable-hash-table");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try (var paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private DurableHashTable open() throws IOException {
+        return new DurableHashTable(directory, Duration.ZERO, 1 << 20);
+    }
+
+    private long countFiles(String prefix) throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(prefix)).count();
+        }
+    }
+
+    @Test
+    void modificationsSurviveReopening() throws IOException {
+        try (var table = open()) {
+            assertNull(table.put("a", "1"));
+            assertEquals("1", table.put("a", "2"));
+            table.put("b", "3");
+            table.put(null, null);
+            table.put("FB", "\u0444");
+            assertEquals("3", table.remove("b"));
+        }
+
+        try (var table = open()) {
+            assertEquals(3, table.size());
+            assertEquals("2", table.get("a"));
+            assertFalse(table.contains("b"));
+            assertTrue(table.contains(null));
+            assertNull(table.get(null));
+            assertEquals("\u0444", table.get("FB"));
+        }
+    }
+
+    @Test
+    void clearIsReplayed() throws IOException {
+        try (var table = open()) {
+            table.put("a", "1");
+            table.clear();
+            table.put("b", "2");
+        }
+
+        try (var table = open()) {
+            assertEquals(1, table.size());
+            assertFalse(table.contains("a"));
+            assertEquals("2", table.get("b"));
+        }
+    }
+
+    @Test
+    void compactionReplacesOldLogs() throws IOException {
+        try (var table = new DurableHashTable(directory, Duration.ZERO, 4096)) {
+            for (int i = 0; i < 5000; i++) {
+                table.put(String.valueOf(i % 700), "v" + i);
+                if (i % 3 == 0) {
+                    table.remove(String.valueOf(i % 500));
+                }
+            }
+        }
+
+        assertEquals(1, countFiles("snapshot-"));
+        assertTrue(countFiles("log-") <= 2);
+
+        var expected = new HashMap<String, String>();
+        for (int i = 0; i < 5000; i++) {
+            expected.put(String.valueOf(i % 700), "v" + i);
+            if (i % 3 == 0) {
+                expected.remove(String.valueOf(i % 500));
+            }
+        }
+        try (var table = open()) {
+            assertEquals(expected.size(), table.size());
+            for (int i = 0; i < 700; i++) {
+                assertEquals(expected.get(String.valueOf(i)), table.get(String.valueOf(i)));
+            }
+        }
+    }
+
+    @Test
+    void failedCompactionIsReportedAndKeepsLogs() throws IOException {
+        // the snapshot can not be written where a directory stands in the way of its temporary file
+        Path obstacle = Files.createDirectory(directory.resolve("snapshot-1.tmp"));
+        var table = new DurableHashTable(directory, Duration.ZERO, 4096);
+        for (int i = 0; i < 200; i++) {
+            table.put(String.valueOf(i), "value");
+        }
+        assertThrows(IOException.class, table::close);
+        assertFalse(Files.exists(directory.resolve("snapshot-1")));
+
+        Files.delete(obstacle);
+        try (var reopened = open()) {
+            assertEquals(200, reopened.size());
+            assertEquals("value", reopened.get("199"));
+        }
+    }
+
+    @Test
+    void tornTailIsDropped() throws IOException {
+        try (var table = open()) {
+            table.put("a", "1");
+            table.put("b", "2");
+        }
+        Path log;
+        try (var files = Files.list(directory)) {
+            log = files.filter(path -> path.getFileName().toString().startsWith("log-")).findFirst().orElseThrow();
+        }
+        // half of a record: a length without the payload
+        Files.write(log, new byte[] {0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+        try (var table = open()) {
+            assertEquals(2, table.size());
+            table.put("c", "3");
+        }
+        try (var table = open()) {
+            assertEquals(3, table.size());
+            assertEquals("3", table.get("c"));
+        }
+    }
+
+    @Test
+    void damagedRecordBeforeNewestLogFails() throws IOException {
+        try (var table = open()) {
+            table.put("a", "1");
+        }
+        try (var table = open()) {
+            table.put("b", "2");
+        }
+        Path oldest = directory.resolve("log-0");
+        byte[] bytes = Files.readAllBytes(oldest);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(oldest, bytes);
+
+        assertThrows(IOException.class, this::open);
+    }
+
+    @Test
+    void concurrentWritersAreAllDurable() throws Exception {
+        var counter = new AtomicInteger();
+        try (var table = new DurableHashTable(directory, Duration.ofMillis(1), 1 << 16)) {
+            ConcurrentRunner.runConcurrently(thread -> {
+                for (int i = 0; i < 200; i++) {
+                    int key = counter.getAndIncrement();
+                    table.put(String.valueOf(key), "v" + key);
+                }
+            });
+        }
+
+        try (var table = open()) {
+            assertEquals(ConcurrentRunner.THREADS * 200, table.size());
+            for (int i = 0; i < ConcurrentRunner.THREADS * 200; i++) {
+                assertEquals("v" + i, table.get(String.valueOf(i)));
+            }
+        }
+    }
+
+    @Test
+    void closedTableRejectsWrites() throws IOException {
+        var table = open();
+        table.close();
+        assertThrows(IllegalStateException.class, () -> table.put("a", "1"));
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.hashtable.test;
+
+import com.example.hashtable.HashTable;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilteredHashTableTest extends HashTableTest {
+    @Override
+    HashTable newTable() {
+        return new HashTable(HashTable.Layout.CHAINED_FILTERED);
+    }
+
+    @Test
+    void removedKeysAreMissesAndOthersStay() {
+        HashTable table = newTable();
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 1000; i++) {
+                table.put(round + ":" + i, String.valueOf(i));
+            }
+            for (int i = 0; i < 1000; i += 2) {
+                assertEquals(String.valueOf(i), table.remove(round + ":" + i));
+            }
+        }
+
+        assertEquals(10000, table.size());
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i % 2 == 1, table.contains(round + ":" + i));
+                assertEquals(i % 2 == 1 ? String.valueOf(i) : null, table.get(round + ":" + i));
+            }
+        }
+    }
+}
@@ -4,6 +4,11 @@ import com.example.hashtable.HashTable;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.stream.Collectors;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class HashTableTest {
@@ -11,13 +16,17 @@ class HashTableTest {
 
     @BeforeEach
     void initM() {
-        table = new HashTable();
+        table = newTable();
+    }
+
+    HashTable newTable() {
+        return new HashTable();
     }
 
     @Test
     void containsBasic() {
-        var table1 = new HashTable();
-        var table2 = new HashTable();
+        var table1 = newTable();
+        var table2 = newTable();
 
         table1.put("looooooooong string", "some string");
         table1.put("bob", "");
@@ -44,7 +53,7 @@ class HashTableTest {
 
     @Test
     void containsNullFalse() {
-        HashTable m = new HashTable();
+        HashTable m = newTable();
 
         m.put("not null", "a");
         assertFalse(m.contains(null));
@@ -134,7 +143,7 @@ class HashTableTest {
         assertEquals("a", table.get(new String(a)));
         assertEquals("b", table.get(new String(b)));
 
-        HashTable m2 = new HashTable();
+        HashTable m2 = newTable();
         m2.put(a, "a");
         assertNull(m2.get(b));
     }
@@ -157,7 +166,7 @@ class HashTableTest {
         assertEquals("a", table.get(new String(a)));
         assertEquals("b", table.get(new String(b)));
 
-        HashTable m2 = new HashTable();
+        HashTable m2 = newTable();
         m2.put(a, "a");
         assertNull(m2.get(b));
     }
@@ -230,6 +239,158 @@ class HashTableTest {
         assertEquals(2, table.size());
     }
 
+    @Test
+    void randomOperationsMatchHashMap() {
+        var random = new Random(42);
+        var expected = new HashMap<String, String>();
+
+        for (int i = 0; i < 20000; i++) {
+            String key = String.valueOf(random.nextInt(500));
+            String value = String.valueOf(random.nextInt());
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), table.remove(key));
+            } else {
+                assertEquals(expected.put(key, value), table.put(key, value));
+            }
+            assertEquals(expected.size(), table.size());
+        }
+
+        for (int i = 0; i < 500; i++) {
+            String key = String.valueOf(i);
+            assertEquals(expected.containsKey(key), table.contains(key));
+            assertEquals(expected.get(key), table.get(key));
+        }
+    }
+
+    @Test
+    void manyKeysWithTheSameHashCode() {
+        // "Aa" and "BB" have the same hash code, so do all 2^12 concatenations of 12 of them
+        var keys = new String[1 << 12];
+        for (int i = 0; i < keys.length; i++) {
+            var key = new StringBuilder();
+            for (int bit = 0; bit < 12; bit++) {
+                key.append((i >> bit & 1) == 0 ? "Aa" : "BB");
+            }
+            keys[i] = key.toString();
+        }
+        if (keys[0].hashCode() != keys[keys.length - 1].hashCode()) {
+            fail("Bad test");
+        }
+
+        for (String key : keys) {
+            table.put(key, key);
+        }
+        for (int i = 0; i < keys.length; i += 2) {
+            assertEquals(keys[i], table.remove(keys[i]));
+        }
+
+        assertEquals(keys.length / 2, table.size());
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(i % 2 == 1 ? keys[i] : null, table.get(keys[i]));
+        }
+    }
+
+    @Test
+    void putAllAndGetAll() {
+        table.put("a", "old");
+        var keys = new String[1000];
+        var values = new String[1000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = String.valueOf(i);
+            values[i] = "v" + i;
+        }
+        keys[999] = "a";
+
+        String[] previous = table.putAll(keys, values);
+
+        assertEquals("old", previous[999]);
+        assertNull(previous[0]);
+        assertEquals(1000, table.size());
+        assertArrayEquals(values, table.getAll(keys));
+        assertArrayEquals(new String[] {null, "v0"}, table.getAll(new String[] {"missing", "0"}));
+    }
+
+    @Test
+    void putAllRepeatedKeys() {
+        String[] previous = table.putAll(new String[] {"a", null, "a"}, new String[] {"1", "2", "3"});
+
+        assertArrayEquals(new String[] {null, null, "1"}, previous);
+        assertEquals("3", table.get("a"));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    void putAllDifferentLengths() {
+        assertThrows(IllegalArgumentException.class, () -> table.putAll(new String[2], new String[1]));
+    }
+
+    @Test
+    void removeAll() {
+        for (int i = 0; i < 100; i++) {
+            table.put(String.valueOf(i), "v" + i);
+        }
+
+        String[] removed = table.removeAll(new String[] {"1", "2", "missing", "1"});
+
+        assertArrayEquals(new String[] {"v1", "v2", null, null}, removed);
+        assertEquals(98, table.size());
+        assertFalse(table.contains("1"));
+        assertTrue(table.contains("3"));
+    }
+
+    @Test
+    void streamsSeeAllMappings() {
+        var expected = new HashMap<String, String>();
+        for (int i = 0; i < 1000; i++) {
+            expected.put(String.valueOf(i), "v" + i);
+            table.put(String.valueOf(i), "v" + i);
+        }
+        expected.put(null, "n");
+        table.put(null, "n");
+
+        var entries = new HashMap<String, String>();
+        table.entries().forEach(entry -> assertNull(entries.put(entry.key, entry.value)));
+        assertEquals(expected, entries);
+
+        assertEquals(expected.keySet(), table.keys().parallel().collect(Collectors.toSet()));
+        assertEquals(1001, table.values().parallel().count());
+        assertEquals(expected.values().stream().sorted().collect(Collectors.toList()),
+                table.values().parallel().sorted().collect(Collectors.toList()));
+        assertEquals(1001, table.keys().toArray().length);
+    }
+
+    @Test
+    void forEachSeesAllMappings() {
+        for (int i = 0; i < 100; i++) {
+            table.put(String.valueOf(i), String.valueOf(i));
+        }
+
+        var seen = new HashMap<String, String>();
+        table.forEach(seen::put);
+
+        assertEquals(100, seen.size());
+        seen.forEach((key, value) -> assertEquals(key, value));
+    }
+
+    @Test
+    void modificationDuringIterationFails() {
+        for (int i = 0; i < 100; i++) {
+            table.put(String.valueOf(i), "");
+        }
+
+        assertThrows(ConcurrentModificationException.class, () -> table.forEach((key, value) -> table.remove(key)));
+
+        for (int i = 0; i < 100; i++) {
+            table.put(String.valueOf(i), "");
+        }
+        assertThrows(ConcurrentModificationException.class,
+                () -> table.keys().forEach(key -> table.put(key + "!", "")));
+
+        // rewriting values is allowed
+        table.forEach((key, value) -> table.put(key, "changed"));
+        assertTrue(table.values().allMatch("changed"::equals));
+    }
+
     private static void causeRehash(HashTable m) {
         for (int i = 0; i < 10; i++) {
             m.put(String.valueOf(i), "string");
@@ -0,0 +1,62 @@
+package com.example.hashtable.test;
+
+import com.example.hashtable.HashTable;
+import org.junit.jupiter.api.Test;
+
+import java.util.ConcurrentModificationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalHashTableTest extends HashTableTest {
+    @Override
+    HashTable newTable() {
+        return new HashTable(HashTable.Layout.CHAINED_INCREMENTAL);
+    }
+
+    @Test
+    void keysStayReachableDuringSeveralResizes() {
+        HashTable table = newTable();
+        for (int i = 0; i < 5000; i++) {
+            table.put(String.valueOf(i), String.valueOf(i));
+            // both old and new buckets are consulted while a resize is in progress
+            assertEquals("0", table.get("0"));
+            assertEquals(String.valueOf(i / 2), table.get(String.valueOf(i / 2)));
+        }
+
+        for (int i = 0; i < 5000; i += 3) {
+            assertEquals(String.valueOf(i), table.remove(String.valueOf(i)));
+        }
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(i % 3 != 0, table.contains(String.valueOf(i)));
+        }
+    }
+
+    @Test
+    void removingDuringMigrationFailsFast() {
+        // some of the sizes leave a migration in progress that the removals made by the action finish
+        for (int size = 1; size <= 300; size++) {
+            HashTable table = newTable();
+            for (int i = 0; i < size; i++) {
+                table.put(String.valueOf(i), "");
+            }
+
+            assertThrows(ConcurrentModificationException.class,
+                    () -> table.forEach((key, value) -> table.remove(key)), "size " + size);
+        }
+    }
+
+    @Test
+    void clearDuringResize() {
+        HashTable table = newTable();
+        for (int i = 0; i < 6; i++) {
+            table.put(String.valueOf(i), "");
+        }
+
+        table.clear();
+        table.put("a", "b");
+
+        assertEquals(1, table.size());
+        assertEquals("b", table.get("a"));
+        assertFalse(table.contains("1"));
+    }
+}
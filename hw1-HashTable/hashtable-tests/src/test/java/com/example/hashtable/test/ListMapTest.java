@@ -182,6 +182,25 @@ class ListMapTest {
         assertNull(map.pop());
     }
 
+    @Test
+    void sizeAfterRemoveAndPop() {
+        addTenKeys(map);
+        map.remove("3");
+        map.remove("missing");
+        map.pop();
+
+        assertEquals(8, map.size());
+    }
+
+    @Test
+    void clearResetsSize() {
+        addTenKeys(map);
+        map.clear();
+        map.put("a", "b");
+
+        assertEquals(1, map.size());
+    }
+
     private static void addTenKeys(ListMap m) {
         for (int i = 0; i < 10; i++) {
             m.put(String.valueOf(i), "string");
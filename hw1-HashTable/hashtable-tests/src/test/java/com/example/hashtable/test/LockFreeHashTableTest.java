@@ -0,0 +1,171 @@
+package com.example.hashtable.test;
+
+import com.example.hashtable.LockFreeHashTable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static com.example.hashtable.test.ConcurrentRunner.THREADS;
+import static com.example.hashtable.test.ConcurrentRunner.runConcurrently;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LockFreeHashTableTest {
+    private LockFreeHashTable table;
+
+    @BeforeEach
+    void initTable() {
+        table = new LockFreeHashTable();
+    }
+
+    @Test
+    void basicOperations() {
+        assertNull(table.put("a", "aa"));
+        assertNull(table.put(null, "n"));
+        assertEquals("aa", table.put("a", "ab"));
+
+        assertTrue(table.contains("a"));
+        assertTrue(table.contains(null));
+        assertFalse(table.contains("b"));
+        assertEquals("ab", table.get("a"));
+        assertEquals(2, table.size());
+
+        assertEquals("n", table.remove(null));
+        assertNull(table.remove(null));
+        assertEquals(1, table.size());
+
+        table.clear();
+        assertEquals(0, table.size());
+        assertNull(table.get("a"));
+    }
+
+    @Test
+    void removalFromLongChain() throws InterruptedException {
+        // "Aa" and "BB" have the same hash code, so all their concatenations share one bucket
+        var keys = new ArrayList<String>();
+        keys.add("");
+        for (int i = 0; i < 13; i++) {
+            var longer = new ArrayList<String>();
+            for (String key : keys) {
+                longer.add(key + "Aa");
+                longer.add(key + "BB");
+            }
+            keys = longer;
+        }
+        for (String key : keys) {
+            table.put(key, key);
+        }
+
+        var colliding = keys;
+        var failure = new Throwable[1];
+        var thread = new Thread(null, () -> {
+            try {
+                // the first keys are the deepest in the chain
+                for (int i = 0; i < 100; i++) {
+                    assertEquals(colliding.get(i), table.remove(colliding.get(i)));
+                }
+            } catch (Throwable e) {
+                failure[0] = e;
+            }
+        }, "remover", 1 << 16);
+        thread.start();
+        thread.join();
+
+        assertNull(failure[0]);
+        assertEquals(keys.size() - 100, table.size());
+        assertNull(table.get(keys.get(0)));
+        assertEquals(keys.get(100), table.get(keys.get(100)));
+    }
+
+    @Test
+    void collisionsAndGrowth() {
+        for (int i = 0; i < 10000; i++) {
+            table.put(String.valueOf(i), String.valueOf(i));
+        }
+        table.put("FB", "1");
+        table.put("Ea", "2");
+
+        assertEquals("1", table.remove("FB"));
+        assertEquals("2", table.get("Ea"));
+        assertEquals(10001, table.size());
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(String.valueOf(i), table.get(String.valueOf(i)));
+        }
+    }
+
+    @Test
+    void writersKeepWorkingThroughResizes() throws Exception {
+        runConcurrently(thread -> {
+            for (int i = 0; i < 50000; i++) {
+                table.put(thread + ":" + i, String.valueOf(i));
+            }
+            for (int i = 0; i < 50000; i += 2) {
+                assertEquals(String.valueOf(i), table.remove(thread + ":" + i));
+            }
+        });
+
+        assertEquals(THREADS * 25000, table.size());
+        for (int thread = 0; thread < THREADS; thread++) {
+            for (int i = 0; i < 50000; i++) {
+                assertEquals(i % 2 == 1 ? String.valueOf(i) : null, table.get(thread + ":" + i));
+            }
+        }
+    }
+
+    /*
+     * In any linearizable history every written value is replaced exactly once, except the last one,
+     * so the values returned by put form a permutation of all written values but one, plus the initial null.
+     */
+    @Test
+    void putsOfSharedKeysAreLinearizable() throws Exception {
+        int keys = 16;
+        int writes = 5000;
+        List<List<String>> returned = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            returned.add(new ArrayList<>());
+        }
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < writes; i++) {
+                // interleave with growth so that puts race with bucket transfers
+                table.put("filler" + thread + ":" + i, "");
+                returned.get(thread).add(table.put("key" + (i % keys), thread + ":" + i));
+            }
+        });
+
+        for (int key = 0; key < keys; key++) {
+            var written = new HashSet<String>();
+            var seen = new ArrayList<String>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                for (int i = key; i < writes; i += keys) {
+                    written.add(thread + ":" + i);
+                    seen.add(returned.get(thread).get(i));
+                }
+            }
+            seen.add(table.get("key" + key));
+
+            assertEquals(1, Collections.frequency(seen, null));
+            seen.remove(null);
+            assertEquals(written.size(), seen.size());
+            assertEquals(written, new HashSet<>(seen));
+        }
+    }
+
+    @Test
+    void putAndRemoveOfSharedKeysBalance() throws Exception {
+        runConcurrently(thread -> {
+            for (int i = 0; i < 20000; i++) {
+                String key = String.valueOf(i % 100);
+                if (table.put(key, "") == null) {
+                    // this thread created the key, so only this thread may remove it
+                    assertEquals("", table.remove(key));
+                }
+            }
+        });
+
+        assertEquals(0, table.size());
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.hashtable.test;
+
+import com.example.hashtable.MappedHashTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedHashTableTest {
+    private Path directory;
+    private Path file;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("mapped-hash-table");
+        file = directory.resolve("table");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try (var paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void basicOperations() throws IOException {
+        try (var table = new MappedHashTable(file)) {
+            assertNull(table.put("a", "aa"));
+            assertNull(table.put(null, null));
+            assertEquals("aa", table.put("a", "ab"));
+            table.put("FB", "1");
+            table.put("Ea", "2");
+
+            assertTrue(table.contains(null));
+            assertNull(table.get(null));
+            assertEquals("ab", table.get("a"));
+            assertEquals("1", table.remove("FB"));
+            assertEquals("2", table.get("Ea"));
+            assertFalse(table.contains("FB"));
+            assertEquals(3, table.size());
+
+            table.clear();
+            assertEquals(0, table.size());
+            assertNull(table.get("a"));
+        }
+    }
+
+    @Test
+    void reopenKeepsEntries() throws IOException {
+        try (var table = new MappedHashTable(file)) {
+            for (int i = 0; i < 5000; i++) {
+                table.put(String.valueOf(i), "value" + i);
+            }
+            for (int i = 0; i < 5000; i += 2) {
+                table.remove(String.valueOf(i));
+            }
+        }
+
+        try (var table = new MappedHashTable(file)) {
+            assertEquals(2500, table.size());
+            for (int i = 0; i < 5000; i++) {
+                assertEquals(i % 2 == 1 ? "value" + i : null, table.get(String.valueOf(i)));
+            }
+            table.put("new", "entry");
+        }
+
+        try (var table = new MappedHashTable(file)) {
+            assertEquals("entry", table.get("new"));
+            assertEquals(2501, table.size());
+        }
+    }
+
+    @Test
+    void incompleteRedoLogIsIgnored() throws IOException {
+        try (var table = new MappedHashTable(file)) {
+            table.put("a", "b");
+        }
+        Files.write(directory.resolve("table.redo"), new byte[] {1, 2, 3});
+
+        try (var table = new MappedHashTable(file)) {
+            assertEquals("b", table.get("a"));
+            assertEquals(1, table.size());
+        }
+        assertFalse(Files.exists(directory.resolve("table.redo")));
+    }
+
+    @Test
+    void emptyFileIsAnEmptyTable() throws IOException {
+        Files.createFile(file);
+        try (var table = new MappedHashTable(file)) {
+            assertEquals(0, table.size());
+            table.put("a", "b");
+        }
+        try (var table = new MappedHashTable(file)) {
+            assertEquals("b", table.get("a"));
+        }
+    }
+
+    @Test
+    void notATableFile() throws IOException {
+        Files.write(file, new byte[100]);
+        assertThrows(IOException.class, () -> new MappedHashTable(file));
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.hashtable.test;
+
+import com.example.hashtable.HashTable;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// runs in its own surefire execution, which enables metrics with the com.example.hashtable.metrics system property
+class MetricsTest {
+    @Test
+    void lookupsAndResizesAreCounted() {
+        var table = new HashTable();
+        for (int i = 0; i < 1000; i++) {
+            table.put(String.valueOf(i), "");
+        }
+        for (int i = 0; i < 500; i++) {
+            table.get(String.valueOf(i));
+            table.contains("missing" + i);
+        }
+
+        var metrics = table.metrics();
+        assertEquals(1000, metrics.getLookupCount());
+        assertEquals(1000, Arrays.stream(metrics.getChainLengthHistogram()).sum());
+        assertTrue(metrics.getResizeCount() > 0);
+        assertTrue(metrics.getResizeTotalNanos() >= metrics.getResizeMaxNanos());
+        assertTrue(metrics.getLoadFactor() > 0 && metrics.getLoadFactor() <= 0.5);
+        assertTrue(metrics.getLongestBucket() >= 1);
+    }
+
+    @Test
+    void lookupsRecordComparisonsMade() {
+        var table = new HashTable();
+        for (int i = 0; i < 1000; i++) {
+            table.put(String.valueOf(i), "");
+        }
+        for (int i = 0; i < 1000; i++) {
+            table.get(String.valueOf(i));
+        }
+
+        // the keys of a bucket of n entries are found after 1, 2, ..., n comparisons,
+        // so at least as many lookups take i comparisons as take i + 1
+        var metrics = table.metrics();
+        long[] histogram = metrics.getChainLengthHistogram();
+        int longest = metrics.getLongestBucket();
+        assertEquals(0, histogram[0]);
+        for (int i = 1; i <= Math.min(longest, histogram.length - 2); i++) {
+            assertTrue(histogram[i] > 0);
+            assertTrue(histogram[i] >= histogram[i + 1]);
+        }
+    }
+
+    @Test
+    void onlyChainedLayoutsHaveMetrics() {
+        assertNotNull(new HashTable(HashTable.Layout.CHAINED_INCREMENTAL).metrics());
+        assertNull(new HashTable(HashTable.Layout.SWISS).metrics());
+        assertThrows(IllegalStateException.class,
+                () -> new HashTable(HashTable.Layout.SWISS).registerMetrics("swiss"));
+    }
+
+    @Test
+    void metricsAreVisibleThroughJmx() throws Exception {
+        var table = new HashTable();
+        table.put("a", "b");
+        table.get("a");
+
+        var name = table.registerMetrics("jmx test");
+        try {
+            var server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(1L, server.getAttribute(name, "LookupCount"));
+            assertEquals(1, server.getAttribute(name, "LongestBucket"));
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+
+    @Test
+    void resizesAreRecordedByFlightRecorder() throws Exception {
+        var file = Files.createTempFile("hash-table", ".jfr");
+        try {
+            try (var recording = new Recording()) {
+                recording.enable("com.example.hashtable.Resize");
+                recording.start();
+                var table = new HashTable();
+                for (int i = 0; i < 1000; i++) {
+                    table.put(String.valueOf(i), "");
+                }
+                recording.stop();
+                recording.dump(file);
+            }
+
+            var events = RecordingFile.readAllEvents(file);
+            assertFalse(events.isEmpty());
+            var last = events.get(events.size() - 1);
+            assertEquals("com.example.hashtable.Resize", last.getEventType().getName());
+            assertTrue(last.getInt("newCapacity") > last.getInt("oldCapacity"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.hashtable.test;
+
+import com.example.hashtable.HashTable;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapHashTableTest extends HashTableTest {
+    @Override
+    HashTable newTable() {
+        return new HashTable(HashTable.Layout.OFF_HEAP);
+    }
+
+    @Test
+    void nonAsciiAndNullValues() {
+        HashTable table = newTable();
+        table.put("\u043A\u043B\u044E\u0447", "\u0437\u043D\u0430\u0447\u0435\u043D\u0438\u0435");
+        table.put("\uD83D\uDD25", null);
+        table.put(null, "");
+
+        assertEquals("\u0437\u043D\u0430\u0447\u0435\u043D\u0438\u0435", table.get("\u043A\u043B\u044E\u0447"));
+        assertTrue(table.contains("\uD83D\uDD25"));
+        assertNull(table.get("\uD83D\uDD25"));
+        assertEquals("", table.get(null));
+        assertFalse(table.contains(""));
+    }
+
+    @Test
+    void valuesOfDifferentSizesReuseFreedBlocks() {
+        HashTable table = newTable();
+        String big = "x".repeat(3 << 20);
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 1000; i++) {
+                table.put(String.valueOf(i), "v".repeat(i % 100 + round));
+            }
+            table.put("big", big);
+            for (int i = 0; i < 1000; i += 2) {
+                table.remove(String.valueOf(i));
+            }
+        }
+
+        assertEquals(501, table.size());
+        assertEquals(big, table.get("big"));
+        for (int i = 1; i < 1000; i += 2) {
+            assertEquals("v".repeat(i % 100 + 9), table.get(String.valueOf(i)));
+        }
+    }
+
+    @Test
+    void indexSpanningSeveralSegments() {
+        try (HashTable table = newTable()) {
+            // more than the 3/4 of 2^20 slots a single index segment holds
+            for (int i = 0; i < 800_000; i++) {
+                table.put(String.valueOf(i), String.valueOf(i));
+            }
+            for (int i = 0; i < 800_000; i += 2) {
+                table.remove(String.valueOf(i));
+            }
+
+            assertEquals(400_000, table.size());
+            for (int i = 0; i < 800_000; i++) {
+                assertEquals(i % 2 == 0 ? null : String.valueOf(i), table.get(String.valueOf(i)));
+            }
+        }
+    }
+
+    @Test
+    void clearAfterGrowingAndBigValues() {
+        try (HashTable table = newTable()) {
+            for (int round = 0; round < 3; round++) {
+                for (int i = 0; i < 10000; i++) {
+                    table.put(String.valueOf(i), "v" + i);
+                }
+                table.put("big", "x".repeat(2 << 20));
+                table.clear();
+                assertEquals(0, table.size());
+                assertNull(table.get("big"));
+            }
+            table.put("a", "b");
+            assertEquals("b", table.get("a"));
+        }
+    }
+}
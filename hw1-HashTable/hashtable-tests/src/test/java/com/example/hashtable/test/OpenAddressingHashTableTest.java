@@ -0,0 +1,50 @@
+package com.example.hashtable.test;
+
+import com.example.hashtable.HashTable;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenAddressingHashTableTest extends HashTableTest {
+    @Override
+    HashTable newTable() {
+        return new HashTable(HashTable.Layout.OPEN_ADDRESSING);
+    }
+
+    @Test
+    void removeKeepsDisplacedKeysReachable() {
+        HashTable table = newTable();
+        // many colliding keys form one long probe sequence
+        String[] keys = {"Aa", "BB", "AaAa", "AaBB", "BBAa", "BBBB"};
+        for (String key : keys) {
+            table.put(key, key);
+        }
+
+        table.remove("Aa");
+        table.remove("AaBB");
+
+        assertNull(table.get("Aa"));
+        assertNull(table.get("AaBB"));
+        assertEquals("BB", table.get("BB"));
+        assertEquals("AaAa", table.get("AaAa"));
+        assertEquals("BBAa", table.get("BBAa"));
+        assertEquals("BBBB", table.get("BBBB"));
+        assertEquals(4, table.size());
+    }
+
+    @Test
+    void manyKeys() {
+        HashTable table = newTable();
+        for (int i = 0; i < 10000; i++) {
+            table.put(String.valueOf(i), String.valueOf(-i));
+        }
+        for (int i = 0; i < 10000; i += 2) {
+            assertEquals(String.valueOf(-i), table.remove(String.valueOf(i)));
+        }
+
+        assertEquals(5000, table.size());
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(i % 2 == 1, table.contains(String.valueOf(i)));
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.hashtable.test;
+
+import com.example.hashtable.HashTableServer;
+import com.example.hashtable.PartitionedHashTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.BindException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionedHashTableTest {
+    private final List<HashTableServer> servers = new ArrayList<>();
+    private PartitionedHashTable table;
+
+    @BeforeEach
+    void startServers() throws IOException {
+        table = new PartitionedHashTable();
+        for (int i = 0; i < 3; i++) {
+            table.addNode(startServer().address());
+        }
+    }
+
+    @AfterEach
+    void stopServers() throws IOException {
+        table.close();
+        for (var server : servers) {
+            server.close();
+        }
+    }
+
+    @Test
+    void basicOperations() {
+        assertNull(table.put("a", "aa"));
+        assertNull(table.put(null, "n"));
+        assertNull(table.put("b", null));
+        assertEquals("aa", table.put("a", "ab"));
+
+        assertTrue(table.contains("a"));
+        assertTrue(table.contains(null));
+        assertTrue(table.contains("b"));
+        assertFalse(table.contains("c"));
+        assertEquals("ab", table.get("a"));
+        assertNull(table.get("b"));
+        assertEquals(3, table.size());
+
+        assertEquals("n", table.remove(null));
+        assertNull(table.remove(null));
+        assertEquals(2, table.size());
+
+        table.clear();
+        assertEquals(0, table.size());
+        assertNull(table.get("a"));
+    }
+
+    @Test
+    void randomOperationsMatchHashMap() {
+        var random = new Random(42);
+        var expected = new HashMap<String, String>();
+
+        for (int i = 0; i < 5000; i++) {
+            String key = String.valueOf(random.nextInt(500));
+            String value = "\u0444" + random.nextInt();
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), table.remove(key));
+            } else {
+                assertEquals(expected.put(key, value), table.put(key, value));
+            }
+        }
+
+        assertEquals(expected.size(), table.size());
+        for (int i = 0; i < 500; i++) {
+            String key = String.valueOf(i);
+            assertEquals(expected.containsKey(key), table.contains(key));
+            assertEquals(expected.get(key), table.get(key));
+        }
+    }
+
+    @Test
+    void pipelinedBatches() {
+        var keys = new String[10000];
+        var values = new String[10000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "key" + i;
+            values[i] = "value" + i;
+        }
+
+        assertArrayEquals(new String[keys.length], table.putAll(keys, values));
+        assertArrayEquals(values, table.getAll(keys));
+        assertArrayEquals(values, table.removeAll(keys));
+        assertEquals(0, table.size());
+        assertThrows(IllegalArgumentException.class, () -> table.putAll(new String[2], new String[1]));
+    }
+
+    @Test
+    void batchesOfLargeValuesDoNotDeadlock() {
+        var keys = new String[600];
+        var values = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "key" + i;
+            values[i] = i + "x".repeat(1 << 16);
+        }
+
+        // overwriting makes every response as large as its request
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            table.putAll(keys, values);
+            assertArrayEquals(values, table.putAll(keys, values));
+            assertArrayEquals(values, table.getAll(keys));
+        });
+
+        // small requests with large responses followed by a request longer than the window
+        var smallKeys = new String[3000];
+        var mediumValues = new String[smallKeys.length];
+        for (int i = 0; i < smallKeys.length; i++) {
+            smallKeys[i] = "k" + i;
+            mediumValues[i] = i + "y".repeat(20 * 1024);
+        }
+        var mixedKeys = Arrays.copyOf(smallKeys, smallKeys.length + 1);
+        mixedKeys[smallKeys.length] = "z".repeat(32 << 20);
+        var expected = Arrays.copyOf(mediumValues, mixedKeys.length);
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            table.putAll(smallKeys, mediumValues);
+            assertArrayEquals(expected, table.getAll(mixedKeys));
+        });
+    }
+
+    @Test
+    void reconnectsAfterServerRestart() throws IOException {
+        table.put("a", "1");
+        var restarted = servers.get(0);
+        int port = restarted.port();
+        restarted.close();
+
+        assertThrows(UncheckedIOException.class, () -> table.size());
+        servers.set(0, restartServer(port));
+
+        for (int i = 0; i < 100; i++) {
+            table.put(String.valueOf(i), "");
+        }
+        assertEquals(100 + (table.contains("a") ? 1 : 0), table.size());
+    }
+
+    @Test
+    void entriesAreSpreadOverServers() {
+        fill(30000);
+        for (var server : servers) {
+            // 64 virtual nodes each keep the shares close to a third
+            assertTrue(server.size() > 5000, "share " + server.size());
+        }
+    }
+
+    @Test
+    void joiningNodeTakesEntriesOnlyFromOthersNotBetweenThem() throws IOException {
+        fill(30000);
+        var sizesBefore = sizes();
+
+        var newcomer = startServer();
+        table.addNode(newcomer.address());
+
+        assertTrue(newcomer.size() > 0);
+        var sizesAfter = sizes();
+        int moved = 0;
+        for (int i = 0; i < sizesBefore.size(); i++) {
+            assertTrue(sizesAfter.get(i) <= sizesBefore.get(i));
+            moved += sizesBefore.get(i) - sizesAfter.get(i);
+        }
+        assertEquals(newcomer.size(), moved);
+        assertFilled(30000);
+    }
+
+    @Test
+    void leavingNodeGivesEntriesAway() throws IOException {
+        fill(30000);
+        var leaving = servers.get(1);
+
+        table.removeNode(leaving.address());
+
+        assertEquals(0, leaving.size());
+        assertEquals(30000, servers.get(0).size() + servers.get(2).size());
+        assertFilled(30000);
+
+        table.addNode(leaving.address());
+        assertTrue(leaving.size() > 0);
+        assertFilled(30000);
+    }
+
+    @Test
+    void membershipErrors() throws IOException {
+        var address = servers.get(0).address();
+        assertThrows(IllegalArgumentException.class, () -> table.addNode(address));
+
+        table.removeNode(servers.get(1).address());
+        table.removeNode(servers.get(2).address());
+        assertThrows(IllegalStateException.class, () -> table.removeNode(address));
+        assertThrows(IllegalArgumentException.class, () -> table.removeNode(servers.get(1).address()));
+
+        var empty = new PartitionedHashTable();
+        assertThrows(IllegalStateException.class, () -> empty.get("a"));
+    }
+
+    private HashTableServer startServer() throws IOException {
+        var server = new HashTableServer(0);
+        servers.add(server);
+        return server;
+    }
+
+    // connections closed a moment ago may still hold the port
+    private static HashTableServer restartServer(int port) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return new HashTableServer(port);
+            } catch (BindException e) {
+                if (attempt == 100) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException interrupted) {
+                    throw new AssertionError(interrupted);
+                }
+            }
+        }
+    }
+
+    private List<Integer> sizes() {
+        var sizes = new ArrayList<Integer>();
+        for (var server : servers) {
+            sizes.add(server.size());
+        }
+        return sizes;
+    }
+
+    private void fill(int count) {
+        var keys = new String[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = String.valueOf(i);
+        }
+        table.putAll(keys, keys);
+    }
+
+    private void assertFilled(int count) {
+        var keys = new String[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = String.valueOf(i);
+        }
+        assertArrayEquals(keys, table.getAll(keys));
+        assertEquals(count, table.size());
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.hashtable.test;
+
+import com.example.hashtable.PersistentHashTable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static com.example.hashtable.test.ConcurrentRunner.runConcurrently;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentHashTableTest {
+    private PersistentHashTable table;
+
+    @BeforeEach
+    void initTable() {
+        table = new PersistentHashTable();
+    }
+
+    @Test
+    void basicOperations() {
+        assertNull(table.put("a", "aa"));
+        assertNull(table.put(null, "n"));
+        assertEquals("aa", table.put("a", "ab"));
+
+        assertTrue(table.contains("a"));
+        assertTrue(table.contains(null));
+        assertFalse(table.contains("b"));
+        assertEquals("ab", table.get("a"));
+        assertEquals(2, table.size());
+
+        assertEquals("n", table.remove(null));
+        assertNull(table.remove(null));
+        assertEquals(1, table.size());
+
+        table.clear();
+        assertEquals(0, table.size());
+        assertNull(table.get("a"));
+    }
+
+    @Test
+    void snapshotIsNotAffectedByLaterChanges() {
+        table.put("a", "1");
+        table.put("b", "2");
+        var snapshot = table.snapshot();
+
+        table.put("a", "changed");
+        table.remove("b");
+        table.put("c", "3");
+
+        assertEquals("1", snapshot.get("a"));
+        assertEquals("2", snapshot.get("b"));
+        assertFalse(snapshot.contains("c"));
+        assertEquals(2, snapshot.size());
+
+        table.clear();
+        assertEquals("1", snapshot.get("a"));
+    }
+
+    @Test
+    void collisions() {
+        // two strings with the same hashCode
+        table.put("FB", "1");
+        table.put("Ea", "2");
+        var snapshot = table.snapshot();
+
+        assertEquals("1", table.remove("FB"));
+        assertNull(table.get("FB"));
+        assertEquals("2", table.get("Ea"));
+        assertEquals("1", snapshot.get("FB"));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void randomOperationsMatchHashMap() {
+        var random = new Random(42);
+        var expected = new HashMap<String, String>();
+        var snapshots = new HashMap<Integer, PersistentHashTable.Snapshot>();
+        var frozen = new HashMap<Integer, HashMap<String, String>>();
+
+        for (int i = 0; i < 20000; i++) {
+            String key = String.valueOf(random.nextInt(500));
+            String value = String.valueOf(random.nextInt());
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), table.remove(key));
+            } else {
+                assertEquals(expected.put(key, value), table.put(key, value));
+            }
+            assertEquals(expected.size(), table.size());
+            if (i % 1000 == 0) {
+                snapshots.put(i, table.snapshot());
+                frozen.put(i, new HashMap<>(expected));
+            }
+        }
+
+        for (int i = 0; i < 500; i++) {
+            String key = String.valueOf(i);
+            assertEquals(expected.containsKey(key), table.contains(key));
+            assertEquals(expected.get(key), table.get(key));
+            for (var moment : snapshots.keySet()) {
+                assertEquals(frozen.get(moment).get(key), snapshots.get(moment).get(key));
+            }
+        }
+    }
+
+    @Test
+    void readersOfSnapshotsDoNotSeeWriter() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            table.put(String.valueOf(i), "0");
+        }
+        var published = new PersistentHashTable.Snapshot[] {table.snapshot()};
+
+        runConcurrently(thread -> {
+            if (thread == 0) {
+                for (int round = 1; round <= 100; round++) {
+                    for (int i = 0; i < 1000; i++) {
+                        table.put(String.valueOf(i), String.valueOf(round));
+                    }
+                    synchronized (published) {
+                        published[0] = table.snapshot();
+                    }
+                }
+                return;
+            }
+            for (int read = 0; read < 200; read++) {
+                PersistentHashTable.Snapshot snapshot;
+                synchronized (published) {
+                    snapshot = published[0];
+                }
+                // every snapshot was taken between rounds, so all its values agree
+                String value = snapshot.get("0");
+                for (int i = 0; i < 1000; i++) {
+                    assertEquals(value, snapshot.get(String.valueOf(i)));
+                }
+                assertEquals(1000, snapshot.size());
+            }
+        });
+    }
+}
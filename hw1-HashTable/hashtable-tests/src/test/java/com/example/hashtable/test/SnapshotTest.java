@@ -0,0 +1,144 @@
+package com.example.hashtable.test;
+
+import com.example.hashtable.HashTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotTest {
+    private Path directory;
+    private Path file;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("hash-table-snapshot");
+        file = directory.resolve("snapshot");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try (var paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void roundTripFromEveryLayout() throws IOException {
+        for (var layout : HashTable.Layout.values()) {
+            var table = new HashTable(layout);
+            for (int i = 0; i < 1000; i++) {
+                table.put(String.valueOf(i), "v" + i);
+            }
+            table.put(null, null);
+            table.put("FB", "\u0444");
+            table.put("Ea", "");
+            table.remove("7");
+
+            table.writeSnapshot(file);
+            var loaded = HashTable.loadSnapshot(file);
+
+            assertEquals(table.size(), loaded.size(), layout.name());
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(table.get(String.valueOf(i)), loaded.get(String.valueOf(i)), layout.name());
+            }
+            assertTrue(loaded.contains(null));
+            assertNull(loaded.get(null));
+            assertEquals("\u0444", loaded.get("FB"));
+            assertEquals("", loaded.get("Ea"));
+            assertFalse(loaded.contains("7"));
+        }
+    }
+
+    @Test
+    void loadedTableIsModifiable() throws IOException {
+        var table = new HashTable();
+        table.put("a", "1");
+        table.writeSnapshot(file);
+
+        var loaded = HashTable.loadSnapshot(file);
+        assertEquals("1", loaded.put("a", "2"));
+        for (int i = 0; i < 100; i++) {
+            loaded.put(String.valueOf(i), "");
+        }
+
+        assertEquals("2", loaded.remove("a"));
+        assertEquals(100, loaded.size());
+        assertEquals("1", HashTable.loadSnapshot(file).get("a"));
+    }
+
+    @Test
+    void emptyTable() throws IOException {
+        new HashTable().writeSnapshot(file);
+        assertEquals(0, HashTable.loadSnapshot(file).size());
+    }
+
+    @Test
+    void corruptedFileIsRejected() throws IOException {
+        var table = new HashTable();
+        table.put("key", "value");
+        table.writeSnapshot(file);
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+
+        assertThrows(IOException.class, () -> HashTable.loadSnapshot(file));
+    }
+
+    @Test
+    void otherFilesAreRejected() throws IOException {
+        Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+        assertThrows(IOException.class, () -> HashTable.loadSnapshot(file));
+
+        Files.write(file, new byte[0]);
+        assertThrows(IOException.class, () -> HashTable.loadSnapshot(file));
+    }
+
+    @Test
+    void versionWithSeedIsStillRead() throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+        out.writeInt(0x48545350);
+        out.writeInt(1);
+        // meta: seed, buckets, entries
+        out.writeInt(1);
+        out.writeLong(16);
+        out.writeLong(0x1234_5678_9ABC_DEF0L);
+        out.writeInt(2);
+        out.writeInt(2);
+        // directory, whatever it says the entries are hashed again
+        out.writeInt(2);
+        out.writeLong(12);
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeInt(2);
+        // entries: "a" -> "1", null -> null
+        out.writeInt(3);
+        out.writeLong(20);
+        out.writeInt(1);
+        out.writeChars("a");
+        out.writeInt(1);
+        out.writeChars("1");
+        out.writeInt(-1);
+        out.writeInt(-1);
+        var checksum = new CRC32();
+        checksum.update(bytes.toByteArray());
+        out.writeInt((int) checksum.getValue());
+        Files.write(file, bytes.toByteArray());
+
+        var loaded = HashTable.loadSnapshot(file);
+        assertEquals(2, loaded.size());
+        assertEquals("1", loaded.get("a"));
+        assertTrue(loaded.contains(null));
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.hashtable.test;
+
+import com.example.hashtable.HashTable;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SwissHashTableTest extends HashTableTest {
+    @Override
+    HashTable newTable() {
+        return new HashTable(HashTable.Layout.SWISS);
+    }
+
+    @Test
+    void churnReusesDeletedSlots() {
+        HashTable table = newTable();
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 100; i++) {
+                table.put(round + ":" + i, String.valueOf(i));
+            }
+            for (int i = 0; i < 100; i++) {
+                assertEquals(String.valueOf(i), table.remove(round + ":" + i));
+            }
+            assertEquals(0, table.size());
+        }
+
+        table.put("a", "b");
+        assertEquals("b", table.get("a"));
+        assertFalse(table.contains("99:99"));
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.hashtable.test;
+
+import com.example.hashtable.GenericHashTable;
+import com.example.hashtable.IntIntHashTable;
+import com.example.hashtable.LongLongHashTable;
+import com.example.hashtable.LongObjectHashTable;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TypedHashTableTest {
+    @Test
+    void genericBasic() {
+        var table = new GenericHashTable<Integer, String>();
+        assertNull(table.put(1, "a"));
+        assertNull(table.put(null, "n"));
+        assertEquals("a", table.put(1, "b"));
+
+        assertTrue(table.contains(1));
+        assertTrue(table.contains(null));
+        assertFalse(table.contains(2));
+        assertEquals("b", table.get(1));
+        assertEquals("n", table.remove(null));
+        assertEquals(1, table.size());
+
+        table.clear();
+        assertEquals(0, table.size());
+        assertNull(table.get(1));
+    }
+
+    @Test
+    void intIntBasic() {
+        var table = new IntIntHashTable();
+        assertEquals(0, table.put(-5, 10));
+        assertEquals(10, table.put(-5, 20));
+        table.put(0, 0);
+
+        assertTrue(table.contains(0));
+        assertTrue(table.contains(-5));
+        assertFalse(table.contains(5));
+        assertEquals(20, table.get(-5));
+        assertEquals(0, table.get(5));
+        assertEquals(20, table.remove(-5));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void longObjectBasic() {
+        var table = new LongObjectHashTable<String>();
+        table.put(Long.MAX_VALUE, "max");
+        table.put(Long.MIN_VALUE, "min");
+        table.put(1L << 32, "high");
+        table.put(1, "low");
+
+        assertEquals("max", table.get(Long.MAX_VALUE));
+        assertEquals("min", table.get(Long.MIN_VALUE));
+        assertEquals("high", table.get(1L << 32));
+        assertEquals("low", table.remove(1));
+        assertNull(table.get(1));
+        assertEquals(3, table.size());
+    }
+
+    @Test
+    void longLongMatchesHashMap() {
+        var random = new Random(7);
+        var table = new LongLongHashTable();
+        var expected = new HashMap<Long, Long>();
+
+        for (int i = 0; i < 50000; i++) {
+            long key = random.nextInt(2000) * 0x1_0000_0001L;
+            if (random.nextInt(3) == 0) {
+                Long removed = expected.remove(key);
+                assertEquals(removed == null ? 0 : removed, table.remove(key));
+            } else {
+                long value = random.nextLong();
+                Long previous = expected.put(key, value);
+                assertEquals(previous == null ? 0 : previous, table.put(key, value));
+            }
+            assertEquals(expected.size(), table.size());
+        }
+
+        for (var entry : expected.entrySet()) {
+            assertEquals((long) entry.getValue(), table.get(entry.getKey()));
+        }
+    }
+}
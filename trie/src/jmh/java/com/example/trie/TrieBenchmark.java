@@ -0,0 +1,88 @@
+package com.example.trie;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operations on long keys nested into each other, like deep file paths: every key but the longest
+ * is a prefix of the next one, so walking to the longest key passes a node per shorter key.
+ *
+ * Run with <code>./gradlew jmh</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TrieBenchmark {
+    // a key ends every STEP characters of the longest one
+    static final private int STEP = 8;
+
+    @Param({"1000", "10000"})
+    public int keyLength;
+
+    private Trie trie;
+    private String longest;
+    private String missing;
+    private byte[] serialized;
+
+    @Setup
+    public void fill() throws IOException {
+        var random = new Random(0);
+        var chars = new char[keyLength];
+        for (int i = 0; i < keyLength; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        longest = new String(chars);
+        missing = longest.substring(0, keyLength - 1) + '!';
+
+        trie = new Trie();
+        for (int length = STEP; length <= keyLength; length += STEP) {
+            trie.add(longest.substring(0, length));
+        }
+
+        var out = new ByteArrayOutputStream();
+        trie.serialize(out);
+        serialized = out.toByteArray();
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return trie.contains(longest);
+    }
+
+    @Benchmark
+    public boolean containsMissing() {
+        return trie.contains(missing);
+    }
+
+    @Benchmark
+    public int howManyStartsWithPrefix() {
+        return trie.howManyStartsWithPrefix(longest);
+    }
+
+    @Benchmark
+    public boolean removeAndAdd() {
+        return trie.remove(longest) & trie.add(longest);
+    }
+
+    @Benchmark
+    public int serialize() throws IOException {
+        var out = new ByteArrayOutputStream(serialized.length);
+        trie.serialize(out);
+        return out.size();
+    }
+
+    @Benchmark
+    public Trie deserialize() throws IOException {
+        var read = new Trie();
+        read.deserialize(new ByteArrayInputStream(serialized));
+        return read;
+    }
+}
@@ -1,7 +1,7 @@
 package com.example.trie;
 
 import java.io.*;
-import java.util.HashMap;
+import java.util.Arrays;
 
 /**
  * Implements trie data structure. Each string can only occur in a trie once.
@@ -15,60 +15,232 @@ public class Trie implements Serializable {
          /*
           * Methods of this class do not work correctly with null as argument.
           * However they don't perform any checks because outer class Trie does in instead.
+          *
+          * The trie is path-compressed: the edge leading to a node is labeled by the character the parent
+          * keeps the node under followed by the label of the node. Every node but the root ends a string
+          * or has at least two children, so a chain of single children is always a single node.
+          *
+          * Children are stored in one of four ways, switched as they are added and removed:
+          *   none   -- all child fields are empty
+          *   single -- the child is in child, its character in key
+          *   sorted -- up to SORTED_MAX children (or more if they are spread too wide for a table)
+          *             in keys and children, ordered by character
+          *   dense  -- children is indexed by character minus key, keys is null
           */
-        private HashMap<Character, Node> next;
+        static final private int SORTED_MAX = 8;
+        // a dense table may have at most this many slots per child
+        static final private int DENSE_SPREAD = 4;
+
+        static final private char[] EMPTY_LABEL = new char[0];
+        static final private int INIT_PATH_LENGTH = 16;
+        static final private int CHILD_COUNT_MASK = (1 << 24) - 1;
+        static final private int STRING_ENDS_FLAG = 1 << 24;
+
+        private char[] label = EMPTY_LABEL;
+        private char key;
+        private Node child;
+        private char[] keys;
+        private Node[] children;
+        private int childCount;
         private boolean stringEndsHere;
         private int stringsEndSubtree;
 
-        public Node() {
-            next = new HashMap<>();
-        }
+        /*
+         * Operations walk down from this node in a loop, so the depth of the trie is not limited by the stack.
+         * Those changing counts remember the nodes they passed in a path array and update them afterwards.
+         */
+
+        public boolean add(String element) {
+            var path = new Node[INIT_PATH_LENGTH];
+            int depth = 0;
+            Node node = this;
+            int position = 0;
+            while (true) {
+                if (depth == path.length) {
+                    path = Arrays.copyOf(path, depth * 2);
+                }
+                path[depth++] = node;
+
+                if (element.length() == position) {
+                    if (node.stringEndsHere) {
+                        return false;
+                    }
+                    node.stringEndsHere = true;
+                    break;
+                }
 
-        public boolean add(String element, int position) {
-            if (element.length() == position) {
-                boolean hadString = stringEndsHere;
-                stringEndsHereSet(true);
-                return !hadString;
+                char character = element.charAt(position);
+                Node nextNode = node.getNext(character);
+                if (nextNode == null) {
+                    node.putNext(character, leaf(element, position + 1));
+                    break;
+                }
+                int matched = nextNode.matchLabel(element, position + 1);
+                if (matched < nextNode.label.length) {
+                    // the element ends or diverges inside the label, so it is surely added
+                    nextNode.split(matched);
+                }
+                node = nextNode;
+                position += 1 + matched;
             }
-            boolean added = accessNext(element.charAt(position)).add(element, position + 1);
-            if (added) {
-                stringsEndSubtreeChange(1);
+
+            for (int i = 0; i < depth; i++) {
+                path[i].stringsEndSubtreeChange(1);
             }
-            return added;
+            return true;
+        }
+
+        public boolean contains(String element) {
+            Node node = find(element);
+            return node != null && node.stringEndsHere;
         }
 
-        public boolean contains(String element, int position) {
-            if (element.length() == position) {
-                return stringEndsHere;
+        public boolean remove(String element) {
+            var path = new Node[INIT_PATH_LENGTH];
+            // characters under which the nodes of the path keep the next ones
+            var pathKeys = new char[INIT_PATH_LENGTH];
+            int depth = 0;
+            Node node = this;
+            int position = 0;
+            while (true) {
+                if (depth == path.length) {
+                    path = Arrays.copyOf(path, depth * 2);
+                    pathKeys = Arrays.copyOf(pathKeys, depth * 2);
+                }
+                path[depth++] = node;
+
+                if (element.length() == position) {
+                    break;
+                }
+                char character = element.charAt(position);
+                Node nextNode = node.getNext(character);
+                if (nextNode == null) {
+                    return false;
+                }
+                int matched = nextNode.matchLabel(element, position + 1);
+                if (matched < nextNode.label.length) {
+                    return false;
+                }
+                pathKeys[depth - 1] = character;
+                node = nextNode;
+                position += 1 + matched;
+            }
+            if (!node.stringEndsHere) {
+                return false;
+            }
+
+            node.stringEndsHere = false;
+            for (int i = depth - 1; i > 0; i--) {
+                Node current = path[i];
+                current.stringsEndSubtreeChange(-1);
+                if (current.getStringsEndSubtree() == 0) {
+                    path[i - 1].removeNext(pathKeys[i - 1]);
+                } else if (!current.stringEndsHere && current.childCount == 1) {
+                    current.mergeWithChild();
+                }
             }
-            Node nextNode = getNext(element.charAt(position));
-            return nextNode != null && nextNode.contains(element, position + 1);
+            stringsEndSubtreeChange(-1);
+            return true;
         }
 
-        public boolean remove(String element, int position) {
-            if (element.length() == position) {
-                boolean hadString = stringEndsHere;
-                stringEndsHereSet(false);
-                return hadString;
+        public int howManyStartsWithPrefix(String prefix) {
+            Node node = this;
+            int position = 0;
+            while (prefix.length() != position) {
+                Node nextNode = node.getNext(prefix.charAt(position));
+                if (nextNode == null) {
+                    return 0;
+                }
+                int matched = nextNode.matchLabel(prefix, position + 1);
+                if (position + 1 + matched == prefix.length()) {
+                    // the prefix ends on the edge, all strings below it start with the prefix
+                    return nextNode.getStringsEndSubtree();
+                }
+                if (matched < nextNode.label.length) {
+                    return 0;
+                }
+                node = nextNode;
+                position += 1 + matched;
             }
+            return node.getStringsEndSubtree();
+        }
 
-            final boolean removed = accessNext(element.charAt(position)).remove(element, position + 1);
-            if (removed) {
-                stringsEndSubtreeChange(-1);
+        // node the edges to which spell the element or null if there is none
+        private Node find(String element) {
+            Node node = this;
+            int position = 0;
+            while (element.length() != position) {
+                Node nextNode = node.getNext(element.charAt(position));
+                if (nextNode == null) {
+                    return null;
+                }
+                int matched = nextNode.matchLabel(element, position + 1);
+                if (matched < nextNode.label.length) {
+                    return null;
+                }
+                node = nextNode;
+                position += 1 + matched;
             }
-            return removed;
+            return node;
         }
 
-        public int howManyStartsWithPrefix(String prefix, int position) {
-            if (prefix.length() == position) {
-                return getStringsEndSubtree();
+        // node holding the rest of the element from the position on
+        private static Node leaf(String element, int position) {
+            var leaf = new Node();
+            if (position < element.length()) {
+                leaf.label = element.substring(position).toCharArray();
             }
+            leaf.stringEndsHereSet(true);
+            return leaf;
+        }
 
-            Node nextNode = getNext(prefix.charAt(position));
-            if (nextNode == null) {
-                return 0;
+        // number of leading characters of the label that match the element from the position on
+        private int matchLabel(String element, int position) {
+            int length = Math.min(label.length, element.length() - position);
+            int matched = 0;
+            while (matched < length && label[matched] == element.charAt(position + matched)) {
+                matched++;
             }
-            return nextNode.howManyStartsWithPrefix(prefix, position + 1);
+            return matched;
+        }
+
+        // keeps the first length characters of the label and moves everything below them into a new child
+        private void split(int length) {
+            var lower = new Node();
+            lower.label = Arrays.copyOfRange(label, length + 1, label.length);
+            lower.takeChildren(this);
+            lower.stringEndsHere = stringEndsHere;
+            lower.stringsEndSubtree = stringsEndSubtree;
+
+            char character = label[length];
+            label = length == 0 ? EMPTY_LABEL : Arrays.copyOf(label, length);
+            key = 0;
+            child = null;
+            keys = null;
+            children = null;
+            childCount = 0;
+            stringEndsHere = false;
+            putNext(character, lower);
+        }
+
+        // absorbs the only child, which must be in the single layout, into this node; this node must not end a string
+        private void mergeWithChild() {
+            Node only = child;
+            var merged = new char[label.length + 1 + only.label.length];
+            System.arraycopy(label, 0, merged, 0, label.length);
+            merged[label.length] = key;
+            System.arraycopy(only.label, 0, merged, label.length + 1, only.label.length);
+            label = merged;
+            takeChildren(only);
+            stringEndsHere = only.stringEndsHere;
+        }
+
+        private void takeChildren(Node from) {
+            key = from.key;
+            child = from.child;
+            keys = from.keys;
+            children = from.children;
+            childCount = from.childCount;
         }
 
         public int getStringsEndSubtree() {
@@ -90,56 +262,254 @@ public class Trie implements Serializable {
             stringsEndSubtree += difference;
         }
 
-        private Node accessNext(char character) {
-            if (!next.containsKey(character)) {
-                next.put(character, new Node());
+        private Node getNext(char character) {
+            if (child != null) {
+                return key == character ? child : null;
+            }
+            if (keys != null) {
+                int index = Arrays.binarySearch(keys, 0, childCount, character);
+                return index >= 0 ? children[index] : null;
+            }
+            if (children != null) {
+                int index = character - key;
+                return index >= 0 && index < children.length ? children[index] : null;
+            }
+            return null;
+        }
+
+        // there must be no child with the character yet
+        private void putNext(char character, Node node) {
+            if (childCount == 0) {
+                key = character;
+                child = node;
+            } else if (child != null) {
+                keys = new char[] {key};
+                children = new Node[] {child};
+                child = null;
+                putSorted(character, node);
+            } else if (keys != null) {
+                char min = (char) Math.min(keys[0], character);
+                char max = (char) Math.max(keys[childCount - 1], character);
+                if (childCount >= SORTED_MAX && fitsDense(min, max, childCount + 1)) {
+                    toDense(min, max);
+                    children[character - key] = node;
+                } else {
+                    putSorted(character, node);
+                }
+            } else {
+                char min = (char) Math.min(key, character);
+                char max = (char) Math.max(key + children.length - 1, character);
+                if (!fitsDense(min, max, childCount + 1)) {
+                    toSorted();
+                    putSorted(character, node);
+                } else {
+                    if (min != key || max != key + children.length - 1) {
+                        var table = new Node[max - min + 1];
+                        System.arraycopy(children, 0, table, key - min, children.length);
+                        children = table;
+                        key = min;
+                    }
+                    children[character - key] = node;
+                }
             }
-            return next.get(character);
+            childCount++;
         }
 
-        private Node getNext(char character) {
-            return next.get(character);
+        // the child with the character must exist
+        private void removeNext(char character) {
+            if (child != null) {
+                child = null;
+                childCount = 0;
+                return;
+            }
+
+            if (keys != null) {
+                int index = Arrays.binarySearch(keys, 0, childCount, character);
+                System.arraycopy(keys, index + 1, keys, index, childCount - index - 1);
+                System.arraycopy(children, index + 1, children, index, childCount - index - 1);
+                children[--childCount] = null;
+            } else {
+                children[character - key] = null;
+                childCount--;
+                if (childCount <= SORTED_MAX / 2) {
+                    toSorted();
+                }
+            }
+
+            if (childCount == 1) {
+                key = keys[0];
+                child = children[0];
+                keys = null;
+                children = null;
+            }
+        }
+
+        private void putSorted(char character, Node node) {
+            int count = childCount;
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, count * 2);
+                children = Arrays.copyOf(children, count * 2);
+            }
+            int index = -Arrays.binarySearch(keys, 0, count, character) - 1;
+            System.arraycopy(keys, index, keys, index + 1, count - index);
+            System.arraycopy(children, index, children, index + 1, count - index);
+            keys[index] = character;
+            children[index] = node;
+        }
+
+        private static boolean fitsDense(char min, char max, int count) {
+            return max - min + 1 <= count * DENSE_SPREAD;
+        }
+
+        private void toDense(char min, char max) {
+            var table = new Node[max - min + 1];
+            for (int i = 0; i < childCount; i++) {
+                table[keys[i] - min] = children[i];
+            }
+            key = min;
+            keys = null;
+            children = table;
+        }
+
+        private void toSorted() {
+            var sortedKeys = new char[Math.max(childCount, 2)];
+            var sortedChildren = new Node[sortedKeys.length];
+            int count = 0;
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] != null) {
+                    sortedKeys[count] = (char) (key + i);
+                    sortedChildren[count++] = children[i];
+                }
+            }
+            keys = sortedKeys;
+            children = sortedChildren;
         }
 
         /**
          * int:
-         *   three bytes -- size of hashMap
+         *   three bytes -- number of children
          *   one byte (zero or not) -- stringEndsHere
-         * for each hashMap entity:
-         *   char -- key of entry
+         * for each child in any order:
+         *   char -- character of the child
          *   Node serialization
+         *
+         * The format has a node per character, so a label is written as a chain of nodes with a single child
+         * and merged back on reading.
          */
         public void deserialize(InputStream in) throws IOException {
-            next = new HashMap<>();
+            label = EMPTY_LABEL;
+            key = 0;
+            child = null;
+            keys = null;
+            children = null;
+            childCount = 0;
             stringEndsHere = false;
             stringsEndSubtree = 0;
 
             var dataIn = new DataInputStream(in);
 
+            // nodes whose children are being read, the number of children left and their characters in parents
+            var stack = new Node[INIT_PATH_LENGTH];
+            var remaining = new int[INIT_PATH_LENGTH];
+            var stackKeys = new char[INIT_PATH_LENGTH];
             int firstInt = dataIn.readInt();
-            int mapSize = firstInt & ((1 << 24) - 1);
-            stringEndsHereSet(firstInt >> 24 != 0);
+            stringEndsHereSet((firstInt & ~CHILD_COUNT_MASK) != 0);
+            stack[0] = this;
+            remaining[0] = firstInt & CHILD_COUNT_MASK;
+            int depth = 1;
+
+            var chain = new StringBuilder();
+            while (depth > 0) {
+                Node top = stack[depth - 1];
+                if (remaining[depth - 1] > 0) {
+                    remaining[depth - 1]--;
+                    char character = dataIn.readChar();
+
+                    // a chain of nodes with a single child and no string is the label of the node after it
+                    chain.setLength(0);
+                    firstInt = dataIn.readInt();
+                    while (firstInt == 1) {
+                        chain.append(dataIn.readChar());
+                        firstInt = dataIn.readInt();
+                    }
+                    var value = new Node();
+                    if (chain.length() > 0) {
+                        value.label = chain.toString().toCharArray();
+                    }
+                    value.stringEndsHereSet((firstInt & ~CHILD_COUNT_MASK) != 0);
+
+                    if (depth == stack.length) {
+                        stack = Arrays.copyOf(stack, depth * 2);
+                        remaining = Arrays.copyOf(remaining, depth * 2);
+                        stackKeys = Arrays.copyOf(stackKeys, depth * 2);
+                    }
+                    stack[depth] = value;
+                    remaining[depth] = firstInt & CHILD_COUNT_MASK;
+                    stackKeys[depth] = character;
+                    depth++;
+                    continue;
+                }
 
-            for (int i = 0; i < mapSize; i++) {
-                char key = dataIn.readChar();
-                var value = new Node();
-                value.deserialize(in);
-                next.put(key, value);
-                stringsEndSubtreeChange(value.getStringsEndSubtree());
+                depth--;
+                // the root stays, as well as subtrees with strings; older versions left empty ones behind
+                if (depth == 0 || top.getStringsEndSubtree() == 0) {
+                    continue;
+                }
+                if (!top.stringEndsHere && top.childCount == 1) {
+                    top.mergeWithChild();
+                }
+                Node parent = stack[depth - 1];
+                parent.putNext(stackKeys[depth], top);
+                parent.stringsEndSubtreeChange(top.getStringsEndSubtree());
             }
         }
 
         public void serialize(OutputStream out) throws IOException {
             var dataOut = new DataOutputStream(out);
-            int firstInt = next.size();
-            if (stringEndsHere) {
-                firstInt |= 1 << 24;
-            }
-            dataOut.writeInt(firstInt);
 
-            for (var i : next.entrySet()) {
-                dataOut.writeChar(i.getKey());
-                i.getValue().serialize(out);
+            // nodes left to write and the characters their parents keep them under
+            var stack = new Node[INIT_PATH_LENGTH];
+            var stackKeys = new char[INIT_PATH_LENGTH];
+            stack[0] = this;
+            int depth = 1;
+            while (depth > 0) {
+                Node node = stack[--depth];
+                if (node != this) {
+                    dataOut.writeChar(stackKeys[depth]);
+                }
+                for (char character : node.label) {
+                    dataOut.writeInt(1);
+                    dataOut.writeChar(character);
+                }
+
+                int firstInt = node.childCount;
+                if (node.stringEndsHere) {
+                    firstInt |= STRING_ENDS_FLAG;
+                }
+                dataOut.writeInt(firstInt);
+
+                if (depth + node.childCount > stack.length) {
+                    int length = Math.max(stack.length * 2, depth + node.childCount);
+                    stack = Arrays.copyOf(stack, length);
+                    stackKeys = Arrays.copyOf(stackKeys, length);
+                }
+                // pushed backwards, so that children are written in the order of characters
+                if (node.child != null) {
+                    stack[depth] = node.child;
+                    stackKeys[depth++] = node.key;
+                } else if (node.keys != null) {
+                    for (int i = node.childCount - 1; i >= 0; i--) {
+                        stack[depth] = node.children[i];
+                        stackKeys[depth++] = node.keys[i];
+                    }
+                } else if (node.children != null) {
+                    for (int i = node.children.length - 1; i >= 0; i--) {
+                        if (node.children[i] != null) {
+                            stack[depth] = node.children[i];
+                            stackKeys[depth++] = (char) (node.key + i);
+                        }
+                    }
+                }
             }
         }
     }
@@ -163,7 +533,7 @@ public class Trie implements Serializable {
         if (element == null) {
             throw new IllegalArgumentException();
         }
-        return root.add(element, 0);
+        return root.add(element);
     }
 
     /**
@@ -175,7 +545,7 @@ public class Trie implements Serializable {
         if (element == null) {
             throw new IllegalArgumentException();
         }
-        return root.contains(element, 0);
+        return root.contains(element);
     }
 
     /**
@@ -188,7 +558,7 @@ public class Trie implements Serializable {
         if (element == null) {
             throw new IllegalArgumentException();
         }
-        return root.remove(element, 0);
+        return root.remove(element);
     }
 
     /**
@@ -209,7 +579,7 @@ public class Trie implements Serializable {
         if (prefix == null) {
             throw new IllegalArgumentException();
         }
-        return root.howManyStartsWithPrefix(prefix, 0);
+        return root.howManyStartsWithPrefix(prefix);
     }
 
     /**
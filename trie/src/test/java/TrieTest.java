@@ -4,8 +4,11 @@ import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Executable;
+import java.util.HashSet;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -163,6 +166,190 @@ class TrieTest {
                 trieRead.howManyStartsWithPrefix("qqa"));
     }
 
+    @Test
+    void wideFanOutAddRemove() {
+        for (char c = 'a'; c <= 'z'; c++) {
+            assertTrue(trie.add("x" + c));
+            assertTrue(trie.add("x" + c + c));
+        }
+        assertEquals(52, trie.howManyStartsWithPrefix("x"));
+        for (char c = 'a'; c <= 'z'; c++) {
+            assertTrue(trie.contains("x" + c));
+            assertFalse(trie.contains("x" + c + 'A'));
+        }
+
+        for (char c = 'a'; c <= 'z'; c += 2) {
+            assertTrue(trie.remove("x" + c));
+            assertTrue(trie.remove("x" + c + c));
+        }
+        assertEquals(26, trie.size());
+        for (char c = 'a'; c <= 'z'; c++) {
+            assertEquals((c - 'a') % 2 == 1, trie.contains("x" + c));
+            assertEquals((c - 'a') % 2 == 1 ? 2 : 0, trie.howManyStartsWithPrefix("x" + c));
+        }
+
+        for (char c = 'b'; c <= 'z'; c += 2) {
+            assertTrue(trie.remove("x" + c + c));
+            assertTrue(trie.remove("x" + c));
+        }
+        assertEquals(0, trie.size());
+        assertEquals(0, trie.howManyStartsWithPrefix("x"));
+        assertTrue(trie.add("xq"));
+        assertTrue(trie.contains("xq"));
+    }
+
+    @Test
+    void sparseCharactersAmongDenseOnes() {
+        for (char c = '0'; c <= '9'; c++) {
+            trie.add(String.valueOf(c));
+        }
+        trie.add("\u4E2D");
+        trie.add("\uFFFF");
+        trie.add("\u0000");
+        assertEquals(13, trie.size());
+        for (char c = '0'; c <= '9'; c++) {
+            assertTrue(trie.contains(String.valueOf(c)));
+        }
+        assertTrue(trie.contains("\u4E2D"));
+        assertTrue(trie.contains("\uFFFF"));
+        assertTrue(trie.contains("\u0000"));
+        assertFalse(trie.contains("\u4E2E"));
+
+        assertTrue(trie.remove("\u4E2D"));
+        assertFalse(trie.contains("\u4E2D"));
+        assertTrue(trie.contains("\uFFFF"));
+    }
+
+    @Test
+    void serializeDeserializeWideFanOut() throws IOException {
+        for (int i = 0; i < 300; i++) {
+            trie.add(Character.toString((char) (i * 7)) + i);
+        }
+        var out = new ByteArrayOutputStream();
+        trie.serialize(out);
+
+        var trieRead = new Trie();
+        trieRead.deserialize(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(300, trieRead.size());
+        for (int i = 0; i < 300; i++) {
+            assertTrue(trieRead.contains(Character.toString((char) (i * 7)) + i));
+        }
+    }
+
+    @Test
+    void removeAbsentKeepsPrefixCounts() {
+        trie.add("abc");
+        assertFalse(trie.remove("abd"));
+        assertFalse(trie.remove("abcd"));
+        assertEquals(1, trie.howManyStartsWithPrefix("ab"));
+        assertEquals(0, trie.howManyStartsWithPrefix("abd"));
+    }
+
+    @Test
+    void sharedPrefixesSplitAndMerge() {
+        var random = new Random(42);
+        var expected = new HashSet<String>();
+        String[] stems = {"https://example.com/", "https://example.com/a/b/", "https://exa", "/usr/lib/", ""};
+        for (int i = 0; i < 5000; i++) {
+            String s = stems[random.nextInt(stems.length)] + Integer.toString(random.nextInt(300), 3);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(s), trie.remove(s));
+            } else {
+                assertEquals(expected.add(s), trie.add(s));
+            }
+        }
+
+        assertEquals(expected.size(), trie.size());
+        for (var stem : stems) {
+            for (int i = 0; i < 300; i++) {
+                String s = stem + Integer.toString(i, 3);
+                assertEquals(expected.contains(s), trie.contains(s));
+                assertEquals(expected.stream().filter(e -> e.startsWith(s)).count(), trie.howManyStartsWithPrefix(s));
+            }
+        }
+        for (String prefix : new String[] {"h", "https://ex", "https://example.com/a", "/usr/lib", "/usr/libx"}) {
+            assertEquals(expected.stream().filter(e -> e.startsWith(prefix)).count(),
+                    trie.howManyStartsWithPrefix(prefix));
+        }
+    }
+
+    @Test
+    void serializationKeepsNodePerCharacterFormat() throws IOException {
+        trie.add("ab");
+        var out = new ByteArrayOutputStream();
+        trie.serialize(out);
+
+        var expected = new ByteArrayOutputStream();
+        var data = new DataOutputStream(expected);
+        data.writeInt(1);
+        data.writeChar('a');
+        data.writeInt(1);
+        data.writeChar('b');
+        data.writeInt(1 << 24);
+        assertArrayEquals(expected.toByteArray(), out.toByteArray());
+
+        var trieRead = new Trie();
+        trieRead.deserialize(new ByteArrayInputStream(out.toByteArray()));
+        assertTrue(trieRead.add("a"));
+        assertEquals(2, trieRead.howManyStartsWithPrefix("a"));
+        assertTrue(trieRead.remove("ab"));
+        assertTrue(trieRead.contains("a"));
+        assertFalse(trieRead.contains("ab"));
+    }
+
+    @Test
+    void millionCharacterKey() throws IOException {
+        String key = "ab".repeat(500_000);
+        assertTrue(trie.add(key));
+        assertTrue(trie.add(key.substring(1)));
+        assertTrue(trie.contains(key));
+        assertFalse(trie.contains(key + "a"));
+        assertEquals(1, trie.howManyStartsWithPrefix(key.substring(0, 700_000)));
+
+        var out = new ByteArrayOutputStream();
+        trie.serialize(out);
+        var trieRead = new Trie();
+        trieRead.deserialize(new ByteArrayInputStream(out.toByteArray()));
+        assertTrue(trieRead.contains(key));
+        assertTrue(trieRead.contains(key.substring(1)));
+        assertEquals(2, trieRead.size());
+
+        assertTrue(trieRead.remove(key));
+        assertFalse(trieRead.contains(key));
+        assertEquals(1, trieRead.size());
+    }
+
+    @Test
+    void millionNodesDeep() throws IOException {
+        int depth = 1_000_000;
+        // every prefix of "aaa...a" up to depth characters, a node per character
+        var stream = new ByteArrayOutputStream();
+        var data = new DataOutputStream(stream);
+        for (int i = 0; i < depth; i++) {
+            data.writeInt(1 | 1 << 24);
+            data.writeChar('a');
+        }
+        data.writeInt(1 << 24);
+        trie.deserialize(new ByteArrayInputStream(stream.toByteArray()));
+
+        String longest = "a".repeat(depth);
+        assertEquals(depth + 1, trie.size());
+        assertTrue(trie.contains(longest));
+        assertEquals(2, trie.howManyStartsWithPrefix(longest.substring(1)));
+        assertTrue(trie.remove(longest));
+        assertTrue(trie.remove(""));
+        assertTrue(trie.add(longest + "b"));
+        assertEquals(1, trie.howManyStartsWithPrefix(longest));
+
+        var out = new ByteArrayOutputStream();
+        trie.serialize(out);
+        var trieRead = new Trie();
+        trieRead.deserialize(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(depth, trieRead.size());
+        assertTrue(trieRead.contains(longest + "b"));
+        assertFalse(trieRead.contains(longest));
+    }
+
     @Test
     void addThrowsTest() {
         assertThrows(IllegalArgumentException.class, () -> trie.add(null));